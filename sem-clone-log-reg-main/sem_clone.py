@@ -3,7 +3,7 @@ from pathlib import Path
 
 import matplotlib.pyplot as plt
 import numpy as np
-from pandas import read_csv
+from pandas import DataFrame, read_csv
 from sklearn.linear_model import LogisticRegression
 from sklearn.metrics import (accuracy_score, balanced_accuracy_score,
                              confusion_matrix)
@@ -32,6 +32,50 @@ sigmoid = np.vectorize(
     lambda x: 1 / (1 + np.e ** (-x)) if x > 0 else 1 - 1 / (1 + np.e ** (x))
 )
 
+def load_columns(data_path):
+    """Reads a CSV file (plain or .gz), or a directory of per-column .npy files written with semantics.npy-export.
+
+    The .npy columns are memory mapped, the cfg names stay on disk until they are needed.
+    """
+    path = Path(data_path)
+    compressed = path.with_name(path.name + ".gz")
+    if not path.exists() and compressed.exists():
+        path = compressed
+    if not path.is_dir():
+        return read_csv(path, compression="infer")
+    columns = {npy.stem: np.load(npy, mmap_mode="r") for npy in path.glob("*.npy")}
+    for name, column in columns.items():
+        if column.dtype.kind == "S":
+            columns[name] = np.char.decode(column, "ascii")
+    return columns
+
+
+def training_labels(data_path, columns):
+    """The manual labels, the detector's own clone types are not used since training on them only re-learns its cutoffs."""
+    if label_column not in columns:
+        raise SystemExit(
+            f"{data_path} has no '{label_column}' column, training needs manual labels "
+            f"({', '.join(positive_values + negative_values)}) for every pair"
+        )
+    return np.asarray(columns[label_column])
+
+
+def feature_matrix(columns):
+    return np.column_stack([np.asarray(columns[c], dtype=np.float64) for c in features_columns])
+
+
+def cfg_names(data_path, columns, mask):
+    if isinstance(columns, DataFrame):
+        return list(zip(columns["cfg 1"][mask], columns["cfg 2"][mask]))
+    path = Path(data_path)
+    with open(path / "cfg-1.txt", encoding="utf-8") as cfg1, open(path / "cfg-2.txt", encoding="utf-8") as cfg2:
+        return [
+            (a.rstrip("\n"), b.rstrip("\n"))
+            for selected, a, b in zip(mask, cfg1, cfg2)
+            if selected
+        ]
+
+
 def get_logistic_regression_classifier(thr=0.5):
     def log_reg_class(X, w):
         val = sigmoid(X @ w)
@@ -47,9 +91,16 @@ def _threshold_predict(model, X, thr=0.5):
 
 def fit_logistic_regression(*, training_data_file, threshold, save_dir, **_):
     print("Reading data...")
-    df = read_csv(training_data_file)
-    X_pos = df[df[label_column].isin(positive_values)][features_columns].to_numpy()
-    X_neg = df[df[label_column].isin(negative_values)][features_columns].to_numpy()
+    columns = load_columns(training_data_file)
+    labels = training_labels(training_data_file, columns)
+    X_all = feature_matrix(columns)
+    X_pos = X_all[np.isin(labels, positive_values)]
+    X_neg = X_all[np.isin(labels, negative_values)]
+    if X_pos.shape[0] == 0 or X_neg.shape[0] == 0:
+        raise SystemExit(
+            f"{training_data_file} has {X_pos.shape[0]} clones ({', '.join(positive_values)}) and "
+            f"{X_neg.shape[0]} non-clones ({', '.join(negative_values)}), training needs both"
+        )
 
     X = np.concatenate([X_pos, X_neg])
     y = np.concatenate([np.ones(X_pos.shape[0]), np.zeros(X_neg.shape[0])])
@@ -108,8 +159,8 @@ def predict_on_csv(*, model_json, prediction_files, save_dir, **_):
     for data_file, save_filename in prediction_files:
         print(f"Predicting on: {data_file}")
         
-        df = read_csv(data_file)
-        X = df[features_columns].to_numpy()
+        columns = load_columns(data_file)
+        X = feature_matrix(columns)
         X = np.concatenate([np.ones((X.shape[0], 1)), X], axis=1)
         model_dic = json.loads(Path(model_json).read_text())
         w = np.array([model_dic["intercept"]] + model_dic["coef"])
@@ -117,9 +168,7 @@ def predict_on_csv(*, model_json, prediction_files, save_dir, **_):
         log_reg = get_logistic_regression_classifier(thr = model_dic["threshold"])
         y_pred = log_reg(X,w)
 
-        names = []
-        for _, row in df.iloc[y_pred==1].iterrows():
-            names.append((row["cfg 1"], row["cfg 2"]))
+        names = cfg_names(data_file, columns, y_pred == 1)
         
         save_file = save_dir / save_filename
         save_file.write_text(json.dumps(names))
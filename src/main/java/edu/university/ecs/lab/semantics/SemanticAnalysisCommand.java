@@ -1,42 +1,82 @@
 package edu.university.ecs.lab.semantics;
 
+import edu.university.ecs.lab.semantics.util.AnalysisOptions;
 import edu.university.ecs.lab.semantics.util.MsCache;
 import edu.university.ecs.lab.semantics.util.ProcessFiles;
 import edu.university.ecs.lab.semantics.util.entityextraction.EntityContextAdapter;
+import edu.university.ecs.lab.semantics.util.entitysimilarity.EntitySimilarityMatrix;
+import edu.university.ecs.lab.semantics.util.entitysimilarity.LexicalSimilarityStore;
+import edu.university.ecs.lab.semantics.util.entitysimilarity.SimilarityContext;
+import edu.university.ecs.lab.semantics.util.entitysimilarity.SimilarityUtilsImpl;
+import edu.university.ecs.lab.semantics.util.entitysimilarity.WordVectors;
+import edu.university.ecs.lab.semantics.util.entitysimilarity.strategies.EntityEmbeddingSimilarityCheckStrategy;
 import edu.university.ecs.lab.semantics.util.entitysimilarity.strategies.EntityLiteralSimilarityCheckStrategy;
 import edu.university.ecs.lab.semantics.util.entitysimilarity.strategies.EntitySematicSimilarityCheckStrategy;
+import edu.university.ecs.lab.semantics.util.entitysimilarity.strategies.EntitySimilarityCheckStrategy;
 import edu.university.ecs.lab.semantics.util.factory.*;
 import edu.university.ecs.lab.semantics.util.file.CacheManager;
+import edu.university.ecs.lab.semantics.util.file.CheckpointCodeCloneSink;
+import edu.university.ecs.lab.semantics.util.file.ModelSnapshot;
+import edu.university.ecs.lab.semantics.util.file.OutputFiles;
+import edu.university.ecs.lab.semantics.util.file.PipelineCheckpoint;
+import edu.university.ecs.lab.semantics.util.file.PipelineCheckpoint.Stage;
 import io.quarkus.runtime.QuarkusApplication;
 import io.quarkus.runtime.annotations.QuarkusMain;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
 @QuarkusMain
 public class SemanticAnalysisCommand implements QuarkusApplication {
 
     public static String sutPath;
     public static String cachePath;
+    public static AnalysisOptions options;
+    // null when checkpoints are turned off
+    public static PipelineCheckpoint checkpoint;
 
     @Override
     public int run(String... args) throws Exception {
         long start = System.currentTimeMillis();
         initCache();
         initPaths(args);
+        initOptions();
+        initCheckpoint();
         preProcess();
         processCodeClonesFromCache();
-        conductCalculation();
+        flushLexicalStore();
+        // both only read the cache, so the per-module CSV is written while the lists are persisted
+        CompletableFuture<Void> calculation = CompletableFuture.runAsync(this::conductCalculation, OutputFiles.executor());
         persistCache();
+        calculation.join();
         System.out.println(System.currentTimeMillis() - start);
         return 0;
     }
 
     private void persistCache() {
+        if (isCompleted(Stage.PERSIST)) {
+            return;
+        }
         CacheManager cacheManager = new CacheManager();
         cacheManager.persistCache(cachePath);
+        completeStage(Stage.PERSIST);
+    }
+
+    private void flushLexicalStore() {
+        if (MsCache.lexicalSimilarityStore != null) {
+            MsCache.lexicalSimilarityStore.flush();
+        }
     }
 
     private void conductCalculation() {
+        if (isCompleted(Stage.CALCULATION)) {
+            return;
+        }
         ModuleCloneFactory moduleCloneFactory = new ModuleCloneFactory();
         moduleCloneFactory.createData();
+        completeStage(Stage.CALCULATION);
     }
 
     private void initPaths(String... args) {
@@ -49,28 +89,136 @@ public class SemanticAnalysisCommand implements QuarkusApplication {
 //        cachePath = "C:\\git\\data";
     }
 
+    private void initOptions() {
+        options = AnalysisOptions.fromConfig();
+        OutputFiles.setGzip(options.isGzip());
+        MsCache.initCodeClones(options.isFloatScores());
+    }
+
+    private void initCheckpoint() {
+        if (options.isCheckpoints() || options.isResume()) {
+            checkpoint = PipelineCheckpoint.open(cachePath, sutPath + " " + options, options.isResume());
+        }
+    }
+
+    private boolean isCompleted(Stage stage) {
+        return checkpoint != null && checkpoint.isCompleted(stage);
+    }
+
+    private void completeStage(Stage stage) {
+        if (checkpoint != null) {
+            checkpoint.complete(stage);
+        }
+    }
 
     public void initCache(){
         MsCache.init();
     }
 
     public void preProcess() {
-        ProcessFiles.run(sutPath);
-        FlowBuilder flowBuilder = new FlowBuilder();
-        flowBuilder.buildFlows();
-        
-        // Entity Construction
-        MsCache.mappedEntities = EntityContextAdapter.getMappedEntityContext(sutPath);
+        if ((isCompleted(Stage.PARSE) || options.isFromSnapshot()) && ModelSnapshot.load(cachePath, sutPath)) {
+            System.err.println("model loaded from " + ModelSnapshot.FILE_NAME);
+        } else {
+            ProcessFiles.run(sutPath);
+            FlowBuilder flowBuilder = new FlowBuilder();
+            flowBuilder.buildFlows();
+
+            // Entity Construction
+            MsCache.mappedEntities = EntityContextAdapter.getMappedEntityContext(sutPath);
+            // the snapshot doubles as the checkpoint of the parse stage
+            if (options.isWriteSnapshot() || checkpoint != null) {
+                ModelSnapshot.persist(cachePath, sutPath);
+            }
+        }
+        completeStage(Stage.PARSE);
+        resolveRestCalls();
+        if (options.isLexicalStore()) {
+            MsCache.lexicalSimilarityStore = LexicalSimilarityStore.open(cachePath, SimilarityUtilsImpl.LEXICAL_SOURCE);
+        }
+        if (options.isEntityMatrix()) {
+            MsCache.entitySimilarityMatrix = EntitySimilarityMatrix.loadOrCompute(cachePath, MsCache.mappedEntities, true,
+                    MsCache.lexicalSimilarityStore);
+        }
+    }
+
+    private void resolveRestCalls() {
+        EndpointTrie endpointTrie = new EndpointTrie(MsCache.msFlows);
+        int resolved = endpointTrie.resolve(MsCache.msRestCallList);
+        System.err.println(resolved + " of " + MsCache.msRestCallList.size() + " rest calls resolved to the flows of "
+                + endpointTrie.getEndpoints() + " endpoints");
     }
 
-    public void processCodeClonesFromCache() {
+    public void processCodeClonesFromCache() throws IOException {
 //        CacheManager cacheManager = new CacheManager();
 //        cacheManager.recreateCache(cachePath);
 //        CodeClonesFactory codeClonesFactory = new CodeClonesFactory(new EntityLiteralSimilarityCheckStrategy());
-    	CodeClonesFactory codeClonesFactory = new CodeClonesFactory(new EntitySematicSimilarityCheckStrategy(true));
+        List<CodeCloneSink> sinks = new ArrayList<>();
+        sinks.add(new MsCacheCodeCloneSink());
+        sinks.add(new CsvCodeCloneSink(cachePath));
+        if (options.isNpyExport()) {
+            sinks.add(new NpyCodeCloneSink(cachePath));
+        }
+        if (options.isCloneClasses()) {
+            sinks.add(new CloneClassCodeCloneSink(cachePath, options.getCloneClassThreshold()));
+        }
+        if (options.getTopK() > 0) {
+            sinks.add(new TopKCodeCloneSink(cachePath, options.getTopK(), options.getTopKEndpoint()));
+        }
+        if (options.isShardedOutput()) {
+            sinks.add(new ShardedCodeCloneSink(cachePath));
+        }
+        CodeCloneSink codeCloneSink = new CompositeCodeCloneSink(sinks.toArray(new CodeCloneSink[0]));
+        if (checkpoint != null) {
+            // finished module pairs are replayed from their shards
+            codeCloneSink = new CheckpointCodeCloneSink(checkpoint, codeCloneSink);
+        }
+    	CodeClonesFactory codeClonesFactory = new CodeClonesFactory(createSimilarityStrategy(), codeCloneSink, createScope(),
+                options.isSignatureBuckets());
+        codeClonesFactory.setMinVocabularyOverlap(options.getMinVocabularyOverlap(), createLowOverlap());
         codeClonesFactory.findCodeClones();
+        completeStage(Stage.CLONES);
         ModuleClonePairFactory mcpf = new ModuleClonePairFactory();
         mcpf.printModuleClonePairs();
     }
 
+    private CodeClonesFactory.Scope createScope() {
+        switch (options.getScope()) {
+            case "inter":
+                return CodeClonesFactory.Scope.INTER;
+            case "intra":
+                return CodeClonesFactory.Scope.INTRA;
+            case "both":
+                return CodeClonesFactory.Scope.BOTH;
+            default:
+                throw new IllegalArgumentException("Unknown semantics.scope: " + options.getScope());
+        }
+    }
+
+    private CodeClonesFactory.LowOverlap createLowOverlap() {
+        switch (options.getLowOverlap()) {
+            case "skip":
+                return CodeClonesFactory.LowOverlap.SKIP;
+            case "literal":
+                return CodeClonesFactory.LowOverlap.LITERAL;
+            default:
+                throw new IllegalArgumentException("Unknown semantics.low-overlap: " + options.getLowOverlap());
+        }
+    }
+
+    private EntitySimilarityCheckStrategy createSimilarityStrategy() throws IOException {
+        switch (options.getStrategy()) {
+            case "literal":
+                return new EntityLiteralSimilarityCheckStrategy();
+            case "embedding":
+                if (options.getWordVectors() == null) {
+                    throw new IllegalArgumentException("semantics.word-vectors is required for the embedding strategy");
+                }
+                return new EntityEmbeddingSimilarityCheckStrategy(WordVectors.open(options.getWordVectors(), cachePath));
+            case "wordnet":
+                return new EntitySematicSimilarityCheckStrategy(SimilarityContext.fromCache(), true);
+            default:
+                throw new IllegalArgumentException("Unknown semantics.strategy: " + options.getStrategy());
+        }
+    }
+
 }
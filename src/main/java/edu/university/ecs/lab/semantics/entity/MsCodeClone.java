@@ -6,8 +6,11 @@ import java.io.Serializable;
 
 @Data
 public class MsCodeClone implements Serializable {
-    private MsFlowEntity a;
-    private MsFlowEntity b;
+    // the flows are persisted once in msFlowList, clones only keep their ids
+    private transient MsFlowEntity a;
+    private transient MsFlowEntity b;
+    private int aId = -1;
+    private int bId = -1;
     private double similarityController = 0;
     private double similarityService = 0;
     private double similarityRepository = 0;
@@ -43,6 +46,47 @@ public class MsCodeClone implements Serializable {
     private double calReturnTypeLiteralSimilarity = 0;
 //    private double calReturnTypeSemanticSimilarity = 0;
     
+    public void setA(MsFlowEntity a) {
+        this.a = a;
+        this.aId = a == null ? -1 : a.getId();
+    }
+
+    public void setB(MsFlowEntity b) {
+        this.b = b;
+        this.bId = b == null ? -1 : b.getId();
+    }
+
+    /**
+     * @return a clone of the two flows with the same scores and types as this one
+     */
+    public MsCodeClone copyWith(MsFlowEntity a, MsFlowEntity b) {
+        MsCodeClone copy = new MsCodeClone();
+        copy.setA(a);
+        copy.setB(b);
+        copy.similarityController = similarityController;
+        copy.similarityService = similarityService;
+        copy.similarityRepository = similarityRepository;
+        copy.similarityRestCalls = similarityRestCalls;
+        copy.globalSimilarity = globalSimilarity;
+        copy.typeA = typeA;
+        copy.typeB = typeB;
+        copy.typeC = typeC;
+        copy.ctrMethodNameSimilarity = ctrMethodNameSimilarity;
+        copy.ctrArgumentsLiteralSimilarity = ctrArgumentsLiteralSimilarity;
+        copy.ctrReturnTypeLiteralSimilarity = ctrReturnTypeLiteralSimilarity;
+        copy.ctrHttpMethodSimilarity = ctrHttpMethodSimilarity;
+        copy.srvMethodNameSimilarity = srvMethodNameSimilarity;
+        copy.srvArgumentsLiteralSimilarity = srvArgumentsLiteralSimilarity;
+        copy.srvReturnTypeLiteralSimilarity = srvReturnTypeLiteralSimilarity;
+        copy.repOperationTypeSimilarity = repOperationTypeSimilarity;
+        copy.repArgumentsLiteralSimilarity = repArgumentsLiteralSimilarity;
+        copy.repReturnTypeLiteralSimilarity = repReturnTypeLiteralSimilarity;
+        copy.calHttpMethodSimilarity = calHttpMethodSimilarity;
+        copy.calURLSimilarity = calURLSimilarity;
+        copy.calArgumentsLiteralSimilarity = calArgumentsLiteralSimilarity;
+        copy.calReturnTypeLiteralSimilarity = calReturnTypeLiteralSimilarity;
+        return copy;
+    }
 
     @Override
     public String toString() {
@@ -2,17 +2,16 @@ package edu.university.ecs.lab.semantics.entity;
 
 import org.checkerframework.checker.units.qual.A;
 
-import java.util.ArrayList;
-import java.util.List;
+import edu.university.ecs.lab.semantics.util.CodeCloneStore;
 
 public class MsCodeCloneCache {
-    private List<MsCodeClone> highSimilar;
+    private CodeCloneStore.Subset highSimilar;
 
-    public MsCodeCloneCache(){
-        highSimilar = new ArrayList<>();
+    public MsCodeCloneCache(CodeCloneStore.Subset highSimilar){
+        this.highSimilar = highSimilar;
     }
 
-    public void addHighSimilar(MsCodeClone mcc) {
-        highSimilar.add(mcc);
+    public void addHighSimilar(int index) {
+        highSimilar.addIndex(index);
     }
 }
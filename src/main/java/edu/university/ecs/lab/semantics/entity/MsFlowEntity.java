@@ -8,6 +8,8 @@ import edu.university.ecs.lab.semantics.entity.graph.*;
 
 @Data
 public class MsFlowEntity {
+    // position in MsCache.msFlows, persisted clones refer to their flows by it
+    private int id;
     private MsClass msController;
     private MsMethod msControllerMethod;
     private MsMethodCall msServiceMethodCall;
@@ -1,18 +1,24 @@
 package edu.university.ecs.lab.semantics.entity.graph;
 
-import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 
 @Data
 @NoArgsConstructor
-@AllArgsConstructor
 @EqualsAndHashCode(callSuper=false)
 public class MsRestCall extends MsMethodCall{
     private String api;
     private String httpMethod;
     private String returnType;
+    // id of the flow of the called endpoint, -1 if it is not part of the system
+    private int targetFlowId = -1;
+
+    public MsRestCall(String api, String httpMethod, String returnType) {
+        this.api = api;
+        this.httpMethod = httpMethod;
+        this.returnType = returnType;
+    }
     
     @Override
     public String toString() {
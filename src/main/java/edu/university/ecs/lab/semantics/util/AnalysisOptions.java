@@ -0,0 +1,83 @@
+package edu.university.ecs.lab.semantics.util;
+
+import org.eclipse.microprofile.config.Config;
+import org.eclipse.microprofile.config.ConfigProvider;
+
+import lombok.Data;
+import lombok.ToString;
+
+/**
+ * optional analysis settings, read from application.properties or -D system properties
+ */
+@Data
+public class AnalysisOptions {
+
+    // precompute the entity x entity similarity matrix before clone detection
+    private boolean entityMatrix = false;
+    // keep Wu-Palmer word scores in the output directory and reuse them on the next run
+    private boolean lexicalStore = true;
+    // similarity strategy for type and argument names: wordnet, embedding or literal
+    private String strategy = "wordnet";
+    // word vector file used by the embedding strategy, GloVe / fastText text or an already converted binary
+    private String wordVectors;
+    // which flows are compared: inter (different modules), intra (the same module) or both
+    private String scope = "inter";
+    // score flows with identical signatures once per other flow and copy the scores to the rest of their bucket
+    private boolean signatureBuckets = false;
+    // module pairs sharing less than this part of their vocabulary are not compared in full, 0 compares all pairs
+    private double minVocabularyOverlap = 0.0;
+    // what happens to those pairs: skip or literal
+    private String lowOverlap = "skip";
+    // write the extracted model to model-snapshot.bin after parsing
+    private boolean writeSnapshot = true;
+    // load the model from model-snapshot.bin instead of parsing the system again
+    private boolean fromSnapshot = false;
+    // also write the per-cfg clone attributes as per-column .npy files
+    private boolean npyExport = false;
+    // keep the clone scores in memory as float instead of double, about 85 instead of 163 bytes per stored clone
+    private boolean floatScores = false;
+    // group the type A and B clones into clone classes in clone-classes.csv
+    private boolean cloneClasses = false;
+    // split the clone classes into groups whose pairs all reach this global similarity, 0 keeps whole components
+    private double cloneClassThreshold = 0.0;
+    // write the k most similar flows in other modules for every flow to top-k-clones.csv, 0 turns it off
+    private int topK = 0;
+    // only list the most similar flows for flows whose cfg name or request mapping contains this
+    private String topKEndpoint;
+    // also write the clones of every module pair into clones-by-module-pair with a manifest
+    private boolean shardedOutput = false;
+    // write the JSON lists and CSV files gzip compressed, as .txt.gz and .csv.gz
+    private boolean gzip = false;
+    // record completed stages and module pair clone shards in the checkpoint directory, a copy of all clones on disk
+    @ToString.Exclude
+    private boolean checkpoints = false;
+    // continue from the checkpoints of an interrupted run and keep writing them, neither is part of the run key
+    @ToString.Exclude
+    private boolean resume = false;
+
+    public static AnalysisOptions fromConfig() {
+        Config config = ConfigProvider.getConfig();
+        AnalysisOptions options = new AnalysisOptions();
+        options.setEntityMatrix(config.getOptionalValue("semantics.entity-matrix", Boolean.class).orElse(options.isEntityMatrix()));
+        options.setLexicalStore(config.getOptionalValue("semantics.lexical-store", Boolean.class).orElse(options.isLexicalStore()));
+        options.setStrategy(config.getOptionalValue("semantics.strategy", String.class).orElse(options.getStrategy()));
+        options.setWordVectors(config.getOptionalValue("semantics.word-vectors", String.class).orElse(options.getWordVectors()));
+        options.setScope(config.getOptionalValue("semantics.scope", String.class).orElse(options.getScope()));
+        options.setSignatureBuckets(config.getOptionalValue("semantics.signature-buckets", Boolean.class).orElse(options.isSignatureBuckets()));
+        options.setMinVocabularyOverlap(config.getOptionalValue("semantics.min-vocabulary-overlap", Double.class).orElse(options.getMinVocabularyOverlap()));
+        options.setLowOverlap(config.getOptionalValue("semantics.low-overlap", String.class).orElse(options.getLowOverlap()));
+        options.setWriteSnapshot(config.getOptionalValue("semantics.write-snapshot", Boolean.class).orElse(options.isWriteSnapshot()));
+        options.setFromSnapshot(config.getOptionalValue("semantics.from-snapshot", Boolean.class).orElse(options.isFromSnapshot()));
+        options.setNpyExport(config.getOptionalValue("semantics.npy-export", Boolean.class).orElse(options.isNpyExport()));
+        options.setFloatScores(config.getOptionalValue("semantics.float-scores", Boolean.class).orElse(options.isFloatScores()));
+        options.setCloneClasses(config.getOptionalValue("semantics.clone-classes", Boolean.class).orElse(options.isCloneClasses()));
+        options.setCloneClassThreshold(config.getOptionalValue("semantics.clone-class-threshold", Double.class).orElse(options.getCloneClassThreshold()));
+        options.setTopK(config.getOptionalValue("semantics.top-k", Integer.class).orElse(options.getTopK()));
+        options.setTopKEndpoint(config.getOptionalValue("semantics.top-k-endpoint", String.class).orElse(options.getTopKEndpoint()));
+        options.setShardedOutput(config.getOptionalValue("semantics.sharded-output", Boolean.class).orElse(options.isShardedOutput()));
+        options.setGzip(config.getOptionalValue("semantics.gzip", Boolean.class).orElse(options.isGzip()));
+        options.setCheckpoints(config.getOptionalValue("semantics.checkpoints", Boolean.class).orElse(options.isCheckpoints()));
+        options.setResume(config.getOptionalValue("semantics.resume", Boolean.class).orElse(options.isResume()));
+        return options;
+    }
+}
@@ -0,0 +1,223 @@
+package edu.university.ecs.lab.semantics.util;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.function.Consumer;
+
+import edu.university.ecs.lab.semantics.entity.MsCodeClone;
+import edu.university.ecs.lab.semantics.entity.MsFlowEntity;
+
+/**
+ * the code clones kept column by column instead of as one MsCodeClone object each
+ *
+ * every score is a primitive array indexed by the position of the clone, next to the two flow ids and a byte of type flags,
+ * so a clone costs 8 bytes per score (4 with single precision) instead of a full object. the arrays are allocated in
+ * fixed chunks, so growing the store never copies it.
+ * get() builds a fresh MsCodeClone for the position, forEachClone() refills one MsCodeClone for every position, which
+ * is how the clones are written out. the flows are looked up by id in MsCache.msFlows, where the id is the position of
+ * the flow
+ */
+public class CodeCloneStore extends AbstractList<MsCodeClone> implements RandomAccess {
+
+    private static final int SCORES = 19;
+    private static final int CHUNK_BITS = 14;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int TYPE_A = 1;
+    private static final int TYPE_B = 2;
+    private static final int TYPE_C = 4;
+
+    private final boolean singlePrecision;
+    private final List<Chunk> chunks = new ArrayList<>();
+    private int size = 0;
+
+    /**
+     * @param singlePrecision keep the scores as float, they are read back rounded to float precision
+     */
+    public CodeCloneStore(boolean singlePrecision) {
+        this.singlePrecision = singlePrecision;
+    }
+
+    public boolean isSinglePrecision() {
+        return singlePrecision;
+    }
+
+    /**
+     * a list of positions in this store
+     */
+    public Subset subset() {
+        return new Subset();
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean add(MsCodeClone msCodeClone) {
+        if ((size & (CHUNK_SIZE - 1)) == 0) {
+            chunks.add(new Chunk());
+        }
+        Chunk chunk = chunks.get(size >>> CHUNK_BITS);
+        int row = size & (CHUNK_SIZE - 1);
+        chunk.aIds[row] = msCodeClone.getAId();
+        chunk.bIds[row] = msCodeClone.getBId();
+        chunk.types[row] = (byte) ((msCodeClone.isTypeA() ? TYPE_A : 0) | (msCodeClone.isTypeB() ? TYPE_B : 0) | (msCodeClone.isTypeC() ? TYPE_C : 0));
+        int k = 0;
+        chunk.setScore(k++, row, msCodeClone.getSimilarityController());
+        chunk.setScore(k++, row, msCodeClone.getSimilarityService());
+        chunk.setScore(k++, row, msCodeClone.getSimilarityRepository());
+        chunk.setScore(k++, row, msCodeClone.getSimilarityRestCalls());
+        chunk.setScore(k++, row, msCodeClone.getGlobalSimilarity());
+        chunk.setScore(k++, row, msCodeClone.getCtrMethodNameSimilarity());
+        chunk.setScore(k++, row, msCodeClone.getCtrArgumentsLiteralSimilarity());
+        chunk.setScore(k++, row, msCodeClone.getCtrReturnTypeLiteralSimilarity());
+        chunk.setScore(k++, row, msCodeClone.getCtrHttpMethodSimilarity());
+        chunk.setScore(k++, row, msCodeClone.getSrvMethodNameSimilarity());
+        chunk.setScore(k++, row, msCodeClone.getSrvArgumentsLiteralSimilarity());
+        chunk.setScore(k++, row, msCodeClone.getSrvReturnTypeLiteralSimilarity());
+        chunk.setScore(k++, row, msCodeClone.getRepOperationTypeSimilarity());
+        chunk.setScore(k++, row, msCodeClone.getRepArgumentsLiteralSimilarity());
+        chunk.setScore(k++, row, msCodeClone.getRepReturnTypeLiteralSimilarity());
+        chunk.setScore(k++, row, msCodeClone.getCalHttpMethodSimilarity());
+        chunk.setScore(k++, row, msCodeClone.getCalURLSimilarity());
+        chunk.setScore(k++, row, msCodeClone.getCalArgumentsLiteralSimilarity());
+        chunk.setScore(k, row, msCodeClone.getCalReturnTypeLiteralSimilarity());
+        size++;
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public MsCodeClone get(int index) {
+        return get(index, new MsCodeClone());
+    }
+
+    /**
+     * fills the target with the clone at the index
+     * @return the target
+     */
+    public MsCodeClone get(int index, MsCodeClone target) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        Chunk chunk = chunks.get(index >>> CHUNK_BITS);
+        int row = index & (CHUNK_SIZE - 1);
+        target.setA(flow(chunk.aIds[row]));
+        target.setB(flow(chunk.bIds[row]));
+        target.setTypeA((chunk.types[row] & TYPE_A) != 0);
+        target.setTypeB((chunk.types[row] & TYPE_B) != 0);
+        target.setTypeC((chunk.types[row] & TYPE_C) != 0);
+        int k = 0;
+        target.setSimilarityController(chunk.score(k++, row));
+        target.setSimilarityService(chunk.score(k++, row));
+        target.setSimilarityRepository(chunk.score(k++, row));
+        target.setSimilarityRestCalls(chunk.score(k++, row));
+        target.setGlobalSimilarity(chunk.score(k++, row));
+        target.setCtrMethodNameSimilarity(chunk.score(k++, row));
+        target.setCtrArgumentsLiteralSimilarity(chunk.score(k++, row));
+        target.setCtrReturnTypeLiteralSimilarity(chunk.score(k++, row));
+        target.setCtrHttpMethodSimilarity(chunk.score(k++, row));
+        target.setSrvMethodNameSimilarity(chunk.score(k++, row));
+        target.setSrvArgumentsLiteralSimilarity(chunk.score(k++, row));
+        target.setSrvReturnTypeLiteralSimilarity(chunk.score(k++, row));
+        target.setRepOperationTypeSimilarity(chunk.score(k++, row));
+        target.setRepArgumentsLiteralSimilarity(chunk.score(k++, row));
+        target.setRepReturnTypeLiteralSimilarity(chunk.score(k++, row));
+        target.setCalHttpMethodSimilarity(chunk.score(k++, row));
+        target.setCalURLSimilarity(chunk.score(k++, row));
+        target.setCalArgumentsLiteralSimilarity(chunk.score(k++, row));
+        target.setCalReturnTypeLiteralSimilarity(chunk.score(k, row));
+        return target;
+    }
+
+    /**
+     * calls the action with every clone in order, all filled into the same MsCodeClone, so the action must not keep it
+     */
+    public void forEachClone(Consumer<? super MsCodeClone> action) {
+        MsCodeClone target = new MsCodeClone();
+        for (int i = 0; i < size; i++) {
+            action.accept(get(i, target));
+        }
+    }
+
+    @Override
+    public void clear() {
+        chunks.clear();
+        size = 0;
+        modCount++;
+    }
+
+    private static MsFlowEntity flow(int id) {
+        return id < 0 ? null : MsCache.msFlows.get(id);
+    }
+
+    private final class Chunk {
+
+        private final int[] aIds = new int[CHUNK_SIZE];
+        private final int[] bIds = new int[CHUNK_SIZE];
+        private final byte[] types = new byte[CHUNK_SIZE];
+        // one array per score, only the one for the chosen precision is allocated
+        private final double[][] doubles = singlePrecision ? null : new double[SCORES][CHUNK_SIZE];
+        private final float[][] floats = singlePrecision ? new float[SCORES][CHUNK_SIZE] : null;
+
+        private void setScore(int column, int row, double value) {
+            if (singlePrecision) {
+                floats[column][row] = (float) value;
+            } else {
+                doubles[column][row] = value;
+            }
+        }
+
+        private double score(int column, int row) {
+            return singlePrecision ? floats[column][row] : doubles[column][row];
+        }
+    }
+
+    /**
+     * positions of clones in the store, e.g. the type A clones, read back as MsCodeClone like the store itself
+     */
+    public class Subset extends AbstractList<MsCodeClone> implements RandomAccess {
+
+        private int[] indices = new int[16];
+        private int subsetSize = 0;
+
+        public void addIndex(int index) {
+            if (subsetSize == indices.length) {
+                indices = Arrays.copyOf(indices, subsetSize + (subsetSize >> 1));
+            }
+            indices[subsetSize++] = index;
+            modCount++;
+        }
+
+        public int indexAt(int i) {
+            return indices[i];
+        }
+
+        @Override
+        public int size() {
+            return subsetSize;
+        }
+
+        @Override
+        public MsCodeClone get(int i) {
+            if (i < 0 || i >= subsetSize) {
+                throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + subsetSize);
+            }
+            return CodeCloneStore.this.get(indices[i]);
+        }
+
+        /**
+         * calls the action with every clone of the subset in order, all filled into the same MsCodeClone
+         */
+        public void forEachClone(Consumer<? super MsCodeClone> action) {
+            MsCodeClone target = new MsCodeClone();
+            for (int i = 0; i < subsetSize; i++) {
+                action.accept(CodeCloneStore.this.get(indices[i], target));
+            }
+        }
+    }
+}
@@ -8,6 +8,9 @@ import edu.university.ecs.lab.semantics.entity.*;
 import edu.university.ecs.lab.semantics.entity.graph.*;
 import edu.university.ecs.lab.semantics.entity.inconsistencies.MsInconsistencies;
 import edu.university.ecs.lab.semantics.util.entitysimilarity.Entity;
+import edu.university.ecs.lab.semantics.util.entitysimilarity.EntitySimilarityMatrix;
+import edu.university.ecs.lab.semantics.util.entitysimilarity.LexicalSimilarityStore;
+import edu.university.ecs.lab.semantics.util.factory.ModuleCloneCounter;
 
 public class MsCache {
     public static List<MsClass> msClassList;
@@ -18,18 +21,24 @@ public class MsCache {
     public static MsInconsistencies msInconsistencies;
     public static List<String> modules;
     public static List<MsFlowEntity> msFlows;
-    public static List<MsCodeClone> msCodeClones;
+    public static CodeCloneStore msCodeClones;
     public static MsCodeCloneCache msCodeCloneCache;
-    public static List<MsCodeClone> sameRepositoryCC;
-    public static List<MsCodeClone> sameRestCallsCC;
-    public static List<MsCodeClone> sameControllerCC;
+    public static CodeCloneStore.Subset sameRepositoryCC;
+    public static CodeCloneStore.Subset sameRestCallsCC;
+    public static CodeCloneStore.Subset sameControllerCC;
     // code clone types
-    public static List<MsCodeClone> typeA;
-    public static List<MsCodeClone> typeB;
-    public static List<MsCodeClone> typeC;
+    public static CodeCloneStore.Subset typeA;
+    public static CodeCloneStore.Subset typeB;
+    public static CodeCloneStore.Subset typeC;
+    // created with the first type A or B clone, the flows and modules are complete by then
+    private static ModuleCloneCounter moduleCloneCounter;
     
     //ContextEntities Mapping
     public static Map<String, Entity> mappedEntities;
+    // optional precomputed entity similarities, see EntitySimilarityMatrix
+    public static EntitySimilarityMatrix entitySimilarityMatrix;
+    // word pair similarities persisted across runs, see LexicalSimilarityStore
+    public static LexicalSimilarityStore lexicalSimilarityStore;
 
     public static void init(){
         modules = new ArrayList<>();
@@ -40,14 +49,33 @@ public class MsCache {
         msRestCallList = new ArrayList<>();
         msFieldList = new ArrayList<>();
         msInconsistencies = new MsInconsistencies();
-        msCodeClones = new ArrayList<>();
-        msCodeCloneCache = new MsCodeCloneCache();
-        sameRepositoryCC = new ArrayList<>();
-        sameRestCallsCC = new ArrayList<>();
-        sameControllerCC = new ArrayList<>();
-        typeA = new ArrayList<>();
-        typeB = new ArrayList<>();
-        typeC = new ArrayList<>();
+        initCodeClones(false);
+    }
+
+    /**
+     * empties the code clone store and its subsets
+     * @param singlePrecision keep the clone scores as float
+     */
+    public static void initCodeClones(boolean singlePrecision) {
+        msCodeClones = new CodeCloneStore(singlePrecision);
+        msCodeCloneCache = new MsCodeCloneCache(msCodeClones.subset());
+        sameRepositoryCC = msCodeClones.subset();
+        sameRestCallsCC = msCodeClones.subset();
+        sameControllerCC = msCodeClones.subset();
+        typeA = msCodeClones.subset();
+        typeB = msCodeClones.subset();
+        typeC = msCodeClones.subset();
+        moduleCloneCounter = null;
+    }
+
+    /**
+     * @return the per-module and per-module-pair clone figures of the clones in msCodeClones
+     */
+    public static ModuleCloneCounter getModuleCloneCounter() {
+        if (moduleCloneCounter == null) {
+            moduleCloneCounter = new ModuleCloneCounter(modules, msFlows, msCodeClones);
+        }
+        return moduleCloneCounter;
     }
 
     public static void addMsClass(MsClass msClass) {
@@ -71,6 +99,7 @@ public class MsCache {
     }
 
     public static void addMsFlow(MsFlowEntity msFlow) {
+        msFlow.setId(msFlows.size());
         msFlows.add(msFlow);
     }
 
@@ -79,23 +108,27 @@ public class MsCache {
         System.out.println();
     }
 
-    public static void addCodeClone(MsCodeClone msCodeClone) {
+    /**
+     * @return the index of the clone in msCodeClones, the subsets refer to it by this index
+     */
+    public static int addCodeClone(MsCodeClone msCodeClone) {
         msCodeClones.add(msCodeClone);
+        return msCodeClones.size() - 1;
     }
 
-    public static void addHighSimilar(MsCodeClone msCodeClone) {
-        msCodeCloneCache.addHighSimilar(msCodeClone);
+    public static void addHighSimilar(int index) {
+        msCodeCloneCache.addHighSimilar(index);
     }
 
-    public static void addSameRepository(MsCodeClone msCodeClone) {
-        sameRepositoryCC.add(msCodeClone);
+    public static void addSameRepository(int index) {
+        sameRepositoryCC.addIndex(index);
     }
 
-    public static void addSameController(MsCodeClone msCodeClone) {
-        sameControllerCC.add(msCodeClone);
+    public static void addSameController(int index) {
+        sameControllerCC.addIndex(index);
     }
 
-    public static void addSameRestCall(MsCodeClone msCodeClone) {
-        sameRestCallsCC.add(msCodeClone);
+    public static void addSameRestCall(int index) {
+        sameRestCallsCC.addIndex(index);
     }
 }
@@ -3,14 +3,25 @@ package edu.university.ecs.lab.semantics.util.constructs;
 import com.github.javaparser.ast.Node;
 import com.github.javaparser.ast.NodeList;
 import com.github.javaparser.ast.expr.AnnotationExpr;
+import com.github.javaparser.ast.expr.ArrayInitializerExpr;
+import com.github.javaparser.ast.expr.Expression;
+import com.github.javaparser.ast.expr.FieldAccessExpr;
 import com.github.javaparser.ast.expr.MemberValuePair;
+import com.github.javaparser.ast.expr.NameExpr;
+import com.github.javaparser.ast.expr.NormalAnnotationExpr;
+import com.github.javaparser.ast.expr.SingleMemberAnnotationExpr;
 
 import edu.university.ecs.lab.semantics.entity.graph.MsAnnotation;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 public class MsAnnotationBuilder {
+
+    private static final List<String> MAPPINGS = Arrays.asList("RequestMapping", "GetMapping", "PostMapping", "PutMapping",
+            "DeleteMapping", "PatchMapping");
+
     public static List<MsAnnotation> buildAnnotations(NodeList<AnnotationExpr> annotations){
         List<MsAnnotation> msAnnotations = new ArrayList<>();
         for (AnnotationExpr an: annotations
@@ -20,6 +31,50 @@ public class MsAnnotationBuilder {
         return msAnnotations;
     }
 
+    /**
+     * @return the path template of the request mapping annotation, "" for a mapping without path,
+     * null if there is no mapping annotation
+     */
+    public static String getMappingPath(NodeList<AnnotationExpr> annotations) {
+        AnnotationExpr mapping = findMapping(annotations);
+        if (mapping == null) {
+            return null;
+        }
+        Expression path = getMember(mapping, "value", "path");
+        return path == null ? "" : UrlTemplate.fromExpression(first(path).toString());
+    }
+
+    /**
+     * @return the HTTP method of the request mapping annotation, GET for a GetMapping and so on,
+     * null for a request mapping without method (any method) or if there is no mapping annotation
+     */
+    public static String getMappingMethod(NodeList<AnnotationExpr> annotations) {
+        AnnotationExpr mapping = findMapping(annotations);
+        if (mapping == null) {
+            return null;
+        }
+        String name = mapping.getName().getIdentifier();
+        if (!name.equals("RequestMapping")) {
+            return name.substring(0, name.length() - "Mapping".length()).toUpperCase();
+        }
+        if (!(mapping instanceof NormalAnnotationExpr)) {
+            return null;
+        }
+        Expression method = getMember(mapping, "method");
+        if (method == null) {
+            return null;
+        }
+        method = first(method);
+        // RequestMethod.GET or a statically imported GET
+        if (method instanceof FieldAccessExpr) {
+            return ((FieldAccessExpr) method).getNameAsString();
+        }
+        if (method instanceof NameExpr) {
+            return ((NameExpr) method).getNameAsString();
+        }
+        return null;
+    }
+
     private static MsAnnotation buildAnnotation(AnnotationExpr annotationExpr) {
         MsAnnotation msAnnotation = new MsAnnotation();
         msAnnotation.setAnnotationName(annotationExpr.getNameAsString());
@@ -35,4 +90,35 @@ public class MsAnnotationBuilder {
         }
         return msAnnotation;
     }
+
+    private static AnnotationExpr findMapping(NodeList<AnnotationExpr> annotations) {
+        for (AnnotationExpr annotation : annotations) {
+            if (MAPPINGS.contains(annotation.getName().getIdentifier())) {
+                return annotation;
+            }
+        }
+        return null;
+    }
+
+    private static Expression getMember(AnnotationExpr annotation, String... names) {
+        if (annotation instanceof SingleMemberAnnotationExpr) {
+            return Arrays.asList(names).contains("value") ? ((SingleMemberAnnotationExpr) annotation).getMemberValue() : null;
+        }
+        if (annotation instanceof NormalAnnotationExpr) {
+            for (MemberValuePair pair : ((NormalAnnotationExpr) annotation).getPairs()) {
+                if (Arrays.asList(names).contains(pair.getNameAsString())) {
+                    return pair.getValue();
+                }
+            }
+        }
+        return null;
+    }
+
+    // the first of several paths or methods, {"/a", "/b"}
+    private static Expression first(Expression expression) {
+        if (expression instanceof ArrayInitializerExpr && !((ArrayInitializerExpr) expression).getValues().isEmpty()) {
+            return ((ArrayInitializerExpr) expression).getValues().get(0);
+        }
+        return expression;
+    }
 }
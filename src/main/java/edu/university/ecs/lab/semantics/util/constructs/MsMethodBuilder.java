@@ -38,6 +38,12 @@ public class MsMethodBuilder {
             // Set Class
             ClassOrInterfaceDeclaration cl = (ClassOrInterfaceDeclaration) parentNode.get();
             msMethod.setClassName(cl.getName().getIdentifier());
+            // Set Mapping, the request mapping of the class is the prefix of the method's
+            String mappingPath = MsAnnotationBuilder.getMappingPath(n.getAnnotations());
+            if (mappingPath != null) {
+                msMethod.setMappingPath(UrlTemplate.joinPaths(MsAnnotationBuilder.getMappingPath(cl.getAnnotations()), mappingPath));
+                msMethod.setMapping(MsAnnotationBuilder.getMappingMethod(n.getAnnotations()));
+            }
             // Find Package
             parentNode = parentNode.get().getParentNode();
             if (parentNode.isPresent()) {
@@ -0,0 +1,109 @@
+package edu.university.ecs.lab.semantics.util.constructs;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * turns URL expressions as written in the source into templates, the string literals are kept and everything else
+ * (variables, constants, method calls) becomes a {} placeholder, e.g. "http://ts-order-service:12031/api/v1/order/" + id
+ * is http://ts-order-service:12031/api/v1/order/{}
+ */
+public class UrlTemplate {
+
+    public static final String VARIABLE = "{}";
+
+    /**
+     * @param expression the source of a string expression, literals concatenated with other expressions by +
+     * @return the template, null for a null expression
+     */
+    public static String fromExpression(String expression) {
+        if (expression == null) {
+            return null;
+        }
+        StringBuilder sb = new StringBuilder(expression.length());
+        boolean variable = false;
+        for (int i = 0; i < expression.length(); i++) {
+            char c = expression.charAt(i);
+            if (c == '"') {
+                variable = false;
+                for (i++; i < expression.length() && expression.charAt(i) != '"'; i++) {
+                    if (expression.charAt(i) == '\\' && i + 1 < expression.length()) {
+                        i++;
+                    }
+                    sb.append(expression.charAt(i));
+                }
+            } else if (c == '+' || c == '(' || c == ')' || Character.isWhitespace(c)) {
+                // an operand ends, the parentheses of a call or a group belong to the operand around them
+                variable = variable && c != '+';
+            } else if (!variable) {
+                sb.append(VARIABLE);
+                variable = true;
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @param template a URL template or a mapping path
+     * @return the path segments, without scheme, host, port and query, a path that starts with a placeholder
+     * (a base URL held in a variable) starts after it. segments with a placeholder or a path variable are {}
+     */
+    public static List<String> pathSegments(String template) {
+        String path = template;
+        int query = path.indexOf('?');
+        if (query >= 0) {
+            path = path.substring(0, query);
+        }
+        int scheme = path.indexOf("://");
+        if (scheme >= 0) {
+            int slash = path.indexOf('/', scheme + 3);
+            path = slash < 0 ? "" : path.substring(slash);
+        } else if (path.startsWith(VARIABLE) && path.length() > VARIABLE.length() && path.charAt(VARIABLE.length()) == '/') {
+            path = path.substring(VARIABLE.length());
+        }
+        List<String> segments = new ArrayList<>();
+        for (String segment : path.split("/")) {
+            if (segment.isEmpty()) {
+                continue;
+            }
+            segments.add(segment.indexOf('{') >= 0 || segment.equals("*") ? VARIABLE : segment);
+        }
+        return segments;
+    }
+
+    /**
+     * @param template a URL template
+     * @return the host without the port, e.g. ts-order-service, null if the template has no scheme or the host is not
+     * a literal
+     */
+    public static String host(String template) {
+        int scheme = template.indexOf("://");
+        if (scheme < 0) {
+            return null;
+        }
+        int end = scheme + 3;
+        while (end < template.length() && "/:?".indexOf(template.charAt(end)) < 0) {
+            end++;
+        }
+        String host = template.substring(scheme + 3, end);
+        return host.isEmpty() || host.contains(VARIABLE) ? null : host;
+    }
+
+    /**
+     * @return the class and method mapping paths joined into one path starting with /
+     */
+    public static String joinPaths(String classPath, String methodPath) {
+        StringBuilder sb = new StringBuilder();
+        for (String path : new String[] {classPath, methodPath}) {
+            if (path == null) {
+                continue;
+            }
+            for (String segment : path.split("/")) {
+                if (!segment.isEmpty()) {
+                    sb.append('/').append(segment);
+                }
+            }
+        }
+        return sb.length() == 0 ? "/" : sb.toString();
+    }
+}
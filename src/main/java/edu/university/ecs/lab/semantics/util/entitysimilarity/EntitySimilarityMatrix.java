@@ -0,0 +1,213 @@
+package edu.university.ecs.lab.semantics.util.entitysimilarity;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * dense entity x entity similarity matrix, computed once before clone detection
+ * so that entity lookups in the clone loop become array reads
+ *
+ * the matrix is one array of n * n doubles, so it holds at most MAX_ENTITIES entities and only as many as fit into
+ * half of the maximum heap. systems with more entities compare them during clone detection as without the matrix
+ */
+public class EntitySimilarityMatrix {
+
+    public static final String FILE_NAME = "entity-similarity-matrix.bin";
+
+    private static final int MAGIC = 0x4D53454D;
+    private static final int VERSION = 1;
+    // the largest n whose n * n values fit into one array
+    public static final int MAX_ENTITIES = 46340;
+    // the part of the maximum heap the matrix may take, the rest is left to the clone detection
+    private static final double HEAP_SHARE = 0.5;
+
+    private final String[] keys;
+    private final Map<String, Integer> index;
+    private final boolean useWuPalmer;
+    private final long fingerprint;
+    // row-major, values[i * n + j] is the similarity of entity i to entity j
+    private final double[] values;
+
+    private EntitySimilarityMatrix(String[] keys, boolean useWuPalmer, long fingerprint, double[] values) {
+        this.keys = keys;
+        this.useWuPalmer = useWuPalmer;
+        this.fingerprint = fingerprint;
+        this.values = values;
+        this.index = new HashMap<>(keys.length * 2);
+        for (int i = 0; i < keys.length; i++) {
+            index.put(keys[i], i);
+        }
+    }
+
+    /**
+     * reuses the matrix persisted under the given path if it was computed for the same entities,
+     * otherwise computes it and persists it for the next run
+     * @return the matrix, null if there are too many entities (see fits)
+     */
+    public static EntitySimilarityMatrix loadOrCompute(String path, Map<String, Entity> mappedEntities, boolean useWuPalmer,
+                                                       LexicalSimilarityStore lexicalSimilarityStore) {
+        String[] keys = sortedKeys(mappedEntities);
+        if (!fits(keys.length)) {
+            return null;
+        }
+        long fingerprint = fingerprint(keys, mappedEntities);
+        EntitySimilarityMatrix matrix = load(path);
+        if (matrix != null && matrix.fingerprint == fingerprint && matrix.useWuPalmer == useWuPalmer) {
+            return matrix;
+        }
+        matrix = compute(keys, mappedEntities, useWuPalmer, fingerprint, new SimilarityUtilsImpl(lexicalSimilarityStore));
+        matrix.persist(path);
+        return matrix;
+    }
+
+    /**
+     * @return the matrix, null if there are too many entities (see fits)
+     */
+    public static EntitySimilarityMatrix compute(Map<String, Entity> mappedEntities, boolean useWuPalmer, SimilarityUtils similarityUtils) {
+        String[] keys = sortedKeys(mappedEntities);
+        if (!fits(keys.length)) {
+            return null;
+        }
+        return compute(keys, mappedEntities, useWuPalmer, fingerprint(keys, mappedEntities), similarityUtils);
+    }
+
+    private static EntitySimilarityMatrix compute(String[] keys, Map<String, Entity> mappedEntities, boolean useWuPalmer, long fingerprint,
+                                                  SimilarityUtils similarityUtils) {
+        int n = keys.length;
+        Entity[] entities = new Entity[n];
+        for (int i = 0; i < n; i++) {
+            entities[i] = mappedEntities.get(keys[i]);
+        }
+        if (useWuPalmer) {
+            // the lexical database answers one lookup at a time, so the word pairs are scored up front
+            // and the parallel rows below only read them from the store
+            similarityUtils.scoreWordPairs(Arrays.asList(entities));
+        }
+        double[] values = new double[n * n];
+        // the entity similarity averages over the fields of the first entity, so both halves are computed
+        IntStream.range(0, n).parallel().forEach(i -> {
+            for (int j = 0; j < n; j++) {
+                values[i * n + j] = similarityUtils.calculateSimilarity(entities[i], entities[j], true, useWuPalmer);
+            }
+        });
+        return new EntitySimilarityMatrix(keys, useWuPalmer, fingerprint, values);
+    }
+
+    /**
+     * @return the index of the entity key, or -1 if the entity is not in the matrix
+     */
+    public int indexOf(String key) {
+        Integer i = index.get(key);
+        return i == null ? -1 : i;
+    }
+
+    public double get(int i, int j) {
+        return values[i * keys.length + j];
+    }
+
+    public int size() {
+        return keys.length;
+    }
+
+    public boolean isUseWuPalmer() {
+        return useWuPalmer;
+    }
+
+    public void persist(String path) {
+        Path file = Paths.get(path, FILE_NAME);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeBoolean(useWuPalmer);
+            out.writeLong(fingerprint);
+            out.writeInt(keys.length);
+            for (String key : keys) {
+                out.writeUTF(key);
+            }
+            for (double value : values) {
+                out.writeDouble(value);
+            }
+        } catch (IOException e) {
+            System.err.format("IOException: %s%n", e);
+        }
+    }
+
+    /**
+     * @return the persisted matrix, or null if there is none or it was written by another version
+     */
+    public static EntitySimilarityMatrix load(String path) {
+        Path file = Paths.get(path, FILE_NAME);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return null;
+            }
+            boolean useWuPalmer = in.readBoolean();
+            long fingerprint = in.readLong();
+            int n = in.readInt();
+            if (n < 0 || !fits(n)) {
+                return null;
+            }
+            String[] keys = new String[n];
+            for (int i = 0; i < n; i++) {
+                keys[i] = in.readUTF();
+            }
+            double[] values = new double[n * n];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = in.readDouble();
+            }
+            return new EntitySimilarityMatrix(keys, useWuPalmer, fingerprint, values);
+        } catch (IOException e) {
+            System.err.format("IOException: %s%n", e);
+            return null;
+        }
+    }
+
+    /**
+     * @return whether the matrix of n entities fits into one array and into its share of the maximum heap
+     */
+    static boolean fits(int n) {
+        if (n > MAX_ENTITIES) {
+            System.err.format("%d entities exceed the %d of the entity similarity matrix, it is not used%n", n, MAX_ENTITIES);
+            return false;
+        }
+        long bytes = (long) n * n * Double.BYTES;
+        long budget = (long) (Runtime.getRuntime().maxMemory() * HEAP_SHARE);
+        if (bytes > budget) {
+            System.err.format("the entity similarity matrix of %d entities needs %d MB, more than the %d MB it may use, it is not used%n",
+                    n, bytes >> 20, budget >> 20);
+            return false;
+        }
+        return true;
+    }
+
+    private static String[] sortedKeys(Map<String, Entity> mappedEntities) {
+        List<String> keys = new ArrayList<>(mappedEntities.keySet());
+        Collections.sort(keys);
+        return keys.toArray(new String[0]);
+    }
+
+    private static long fingerprint(String[] keys, Map<String, Entity> mappedEntities) {
+        long fingerprint = 17;
+        for (String key : keys) {
+            fingerprint = fingerprint * 31 + key.hashCode();
+            fingerprint = fingerprint * 31 + mappedEntities.get(key).hashCode();
+        }
+        return fingerprint;
+    }
+}
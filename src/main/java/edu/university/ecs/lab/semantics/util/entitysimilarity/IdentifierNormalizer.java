@@ -0,0 +1,150 @@
+package edu.university.ecs.lab.semantics.util.entitysimilarity;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * splits identifiers into lower case word tokens (camelCase, snake_case, kebab-case, generics)
+ *
+ * every distinct identifier is tokenized once and the result is shared by all strategies,
+ * the tokenizer is a single pass over the characters, no regex involved
+ */
+public class IdentifierNormalizer {
+
+    private static final Map<String, NormalizedIdentifier> CACHE = new ConcurrentHashMap<>();
+
+    /**
+     * @param identifier a class, method, field or type name
+     * @return the cached normalized form of the identifier
+     */
+    public static NormalizedIdentifier normalize(String identifier) {
+        NormalizedIdentifier normalized = CACHE.get(identifier);
+        if (normalized == null) {
+            normalized = CACHE.computeIfAbsent(identifier, IdentifierNormalizer::tokenize);
+        }
+        return normalized;
+    }
+
+    private static NormalizedIdentifier tokenize(String identifier) {
+        List<String> tokens = new ArrayList<>(4);
+        int length = identifier.length();
+        int tokenStart = -1;
+        int runStart = -1;
+        int lastRunStart = 0;
+        int lastRunEnd = 0;
+        // index of the first token of the current and of the last run
+        int runToken = 0;
+        int lastRunToken = 0;
+        for (int i = 0; i < length; i++) {
+            char c = identifier.charAt(i);
+            if (!isLetterOrDigit(c)) {
+                if (runStart >= 0) {
+                    tokens.add(lowerCase(identifier, tokenStart, i));
+                    lastRunStart = runStart;
+                    lastRunEnd = i;
+                    lastRunToken = runToken;
+                    runStart = -1;
+                }
+                continue;
+            }
+            if (runStart < 0) {
+                runStart = i;
+                tokenStart = i;
+                runToken = tokens.size();
+                continue;
+            }
+            char previous = identifier.charAt(i - 1);
+            boolean boundary =
+                    // orderId, v2Order
+                    (isLower(previous) || isDigit(previous)) && isUpper(c)
+                    // HTTPRequest -> http, request
+                    || isUpper(previous) && isUpper(c) && i + 1 < length && isLower(identifier.charAt(i + 1))
+                    // order2 -> order, 2
+                    || !isDigit(previous) && isDigit(c);
+            if (boundary) {
+                tokens.add(lowerCase(identifier, tokenStart, i));
+                tokenStart = i;
+            }
+        }
+        if (runStart >= 0) {
+            tokens.add(lowerCase(identifier, tokenStart, length));
+            lastRunStart = runStart;
+            lastRunEnd = length;
+            lastRunToken = runToken;
+        }
+        return new NormalizedIdentifier(identifier, identifier.substring(lastRunStart, lastRunEnd), tokens.toArray(new String[0]),
+                tokens.subList(lastRunToken, tokens.size()).toArray(new String[0]));
+    }
+
+    private static String lowerCase(String identifier, int start, int end) {
+        char[] chars = new char[end - start];
+        for (int i = start; i < end; i++) {
+            char c = identifier.charAt(i);
+            chars[i - start] = isUpper(c) ? (char) (c + ('a' - 'A')) : c;
+        }
+        return new String(chars);
+    }
+
+    private static boolean isLetterOrDigit(char c) {
+        return isLower(c) || isUpper(c) || isDigit(c);
+    }
+
+    private static boolean isLower(char c) {
+        return c >= 'a' && c <= 'z';
+    }
+
+    private static boolean isUpper(char c) {
+        return c >= 'A' && c <= 'Z';
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    /**
+     * tokenized form of one identifier
+     */
+    public static final class NormalizedIdentifier {
+
+        private final String lowerCase;
+        // last alphanumeric part, e.g. Order for List<Order>
+        private final String basicName;
+        private final String[] tokens;
+        // tokens of the basic name, e.g. order, item for com.x.OrderItem
+        private final String[] basicTokens;
+        // tokens joined by a single space, identifiers that only differ in case or separators share it
+        private final String normalized;
+
+        private NormalizedIdentifier(String identifier, String basicName, String[] tokens, String[] basicTokens) {
+            this.lowerCase = identifier.toLowerCase();
+            this.basicName = basicName;
+            this.tokens = tokens;
+            this.basicTokens = basicTokens;
+            this.normalized = String.join(" ", tokens);
+        }
+
+        public String getLowerCase() {
+            return lowerCase;
+        }
+
+        public String getBasicName() {
+            return basicName;
+        }
+
+        // shared between callers, do not modify
+        public String[] getTokens() {
+            return tokens;
+        }
+
+        // shared between callers, do not modify
+        public String[] getBasicTokens() {
+            return basicTokens;
+        }
+
+        public String getNormalized() {
+            return normalized;
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package edu.university.ecs.lab.semantics.util.entitysimilarity;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * word pair similarities persisted across runs
+ *
+ * the store is an append-only file in the output directory: a header naming the similarity source,
+ * followed by (word, word, score) records. the file is memory-mapped once on open to build the hash index,
+ * scores computed during the run are appended by flush(). lookups and puts are lock-free and safe from any thread
+ */
+public class LexicalSimilarityStore {
+
+    public static final String FILE_NAME = "lexical-similarity.bin";
+
+    private static final int MAGIC = 0x4D534C58;
+    private static final int VERSION = 1;
+    private static final int HEADER_MAGIC_BYTES = 8;
+
+    private final Path file;
+    private final String source;
+    private final Map<String, Double> scores = new ConcurrentHashMap<>();
+    private final Map<String, Double> pending = new ConcurrentHashMap<>();
+    // end of the last complete record, anything after it is a torn append and gets overwritten
+    private long validLength = 0;
+
+    private LexicalSimilarityStore(Path file, String source) {
+        this.file = file;
+        this.source = source;
+    }
+
+    /**
+     * opens the store in the given directory, source identifies the measure and lexical database
+     * the scores were computed with, stores written for another source are ignored
+     */
+    public static LexicalSimilarityStore open(String path, String source) {
+        LexicalSimilarityStore store = new LexicalSimilarityStore(Paths.get(path, FILE_NAME), source);
+        store.load();
+        return store;
+    }
+
+    /**
+     * a store that is never written to disk
+     */
+    public static LexicalSimilarityStore inMemory(String source) {
+        return new LexicalSimilarityStore(null, source);
+    }
+
+    /**
+     * @return the stored score, or null if the pair was never scored
+     */
+    public Double get(String one, String two) {
+        return scores.get(key(one, two));
+    }
+
+    public void put(String one, String two, double score) {
+        String key = key(one, two);
+        if (scores.putIfAbsent(key, score) == null) {
+            pending.put(key, score);
+        }
+    }
+
+    public int size() {
+        return scores.size();
+    }
+
+    /**
+     * appends the scores computed since the store was opened
+     */
+    public synchronized void flush() {
+        if (file == null || pending.isEmpty()) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            if (validLength == 0) {
+                channel.truncate(0);
+                channel.write(header());
+                validLength = channel.position();
+            } else {
+                channel.truncate(validLength);
+                channel.position(validLength);
+            }
+            for (Map.Entry<String, Double> entry : pending.entrySet()) {
+                channel.write(record(entry.getKey(), entry.getValue()));
+            }
+            validLength = channel.position();
+            pending.clear();
+        } catch (IOException e) {
+            System.err.format("IOException: %s%n", e);
+        }
+    }
+
+    private void load() {
+        if (!Files.exists(file)) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.remaining() < HEADER_MAGIC_BYTES || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                return;
+            }
+            String storedSource = readString(buffer);
+            if (storedSource == null || !storedSource.equals(source)) {
+                return;
+            }
+            validLength = buffer.position();
+            while (buffer.hasRemaining()) {
+                String key = readString(buffer);
+                if (key == null || buffer.remaining() < Double.BYTES) {
+                    break;
+                }
+                scores.put(key, buffer.getDouble());
+                validLength = buffer.position();
+            }
+        } catch (IOException e) {
+            System.err.format("IOException: %s%n", e);
+        }
+    }
+
+    private ByteBuffer header() {
+        byte[] sourceBytes = source.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_MAGIC_BYTES + Short.BYTES + sourceBytes.length).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(VERSION).putShort((short) sourceBytes.length).put(sourceBytes);
+        buffer.flip();
+        return buffer;
+    }
+
+    private static ByteBuffer record(String key, double score) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocate(Short.BYTES + keyBytes.length + Double.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putShort((short) keyBytes.length).put(keyBytes).putDouble(score);
+        buffer.flip();
+        return buffer;
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        if (buffer.remaining() < Short.BYTES) {
+            return null;
+        }
+        int length = Short.toUnsignedInt(buffer.getShort());
+        if (buffer.remaining() < length) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // the similarity measures are symmetric, so pairs are stored in one order only
+    private static String key(String one, String two) {
+        return one.compareTo(two) <= 0 ? one + '\u0000' + two : two + '\u0000' + one;
+    }
+}
@@ -4,8 +4,7 @@ package edu.university.ecs.lab.semantics.util.entitysimilarity;
 public class NameStripper {
 
     public static String getBasicName(String name){
-        String [] parts = name.split("[^a-zA-Z0-9]+");
-        return parts[parts.length - 1];
+        return IdentifierNormalizer.normalize(name).getBasicName();
     }
 
 //    public static void sanitizeSystemContext(SystemContext toSanitize){
@@ -0,0 +1,52 @@
+package edu.university.ecs.lab.semantics.util.entitysimilarity;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import edu.university.ecs.lab.semantics.util.MsCache;
+
+/**
+ * everything a similarity strategy reads besides its arguments
+ *
+ * the context is immutable, so a strategy built on it can be shared by any number of scoring threads
+ */
+public final class SimilarityContext {
+
+    private final Map<String, Entity> mappedEntities;
+    private final EntitySimilarityMatrix entitySimilarityMatrix;
+    private final LexicalSimilarityStore lexicalSimilarityStore;
+
+    /**
+     * @param mappedEntities the entities by package prefix and lower case class name
+     * @param entitySimilarityMatrix the precomputed entity similarities, may be null
+     * @param lexicalSimilarityStore the persisted word pair scores, may be null
+     */
+    public SimilarityContext(Map<String, Entity> mappedEntities, EntitySimilarityMatrix entitySimilarityMatrix,
+                             LexicalSimilarityStore lexicalSimilarityStore) {
+        this.mappedEntities = mappedEntities == null
+                ? Collections.emptyMap()
+                : Collections.unmodifiableMap(new HashMap<>(mappedEntities));
+        this.entitySimilarityMatrix = entitySimilarityMatrix;
+        this.lexicalSimilarityStore = lexicalSimilarityStore;
+    }
+
+    /**
+     * @return a context over the entities, matrix and store currently held by the MsCache
+     */
+    public static SimilarityContext fromCache() {
+        return new SimilarityContext(MsCache.mappedEntities, MsCache.entitySimilarityMatrix, MsCache.lexicalSimilarityStore);
+    }
+
+    public Entity getEntity(String key) {
+        return mappedEntities.get(key);
+    }
+
+    public EntitySimilarityMatrix getEntitySimilarityMatrix() {
+        return entitySimilarityMatrix;
+    }
+
+    public LexicalSimilarityStore getLexicalSimilarityStore() {
+        return lexicalSimilarityStore;
+    }
+}
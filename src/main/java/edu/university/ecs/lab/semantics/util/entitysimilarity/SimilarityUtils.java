@@ -1,5 +1,6 @@
 package edu.university.ecs.lab.semantics.util.entitysimilarity;
 
+import java.util.Collection;
 import java.util.Map;
 
 import org.apache.commons.lang3.tuple.ImmutablePair;
@@ -39,4 +40,12 @@ public interface SimilarityUtils {
     double nameSimilarity(String one, String two, boolean useWuPalmer);
     
     double calculateSimilarity(Entity entityOne, Entity entityTwo, boolean includingName, boolean useWuPalmer);
+
+    /**
+     * scores every word pair the Wu Palmer comparisons of the given entities can look up, so that
+     * comparing them afterwards does not wait for the lexical database
+     *
+     * @param entities the entities that are compared next
+     */
+    void scoreWordPairs(Collection<Entity> entities);
 }
@@ -1,10 +1,15 @@
 package edu.university.ecs.lab.semantics.util.entitysimilarity;
 
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 import edu.cmu.lti.jawjaw.pobj.POS;
@@ -15,35 +20,47 @@ import edu.cmu.lti.ws4j.Relatedness;
 import edu.cmu.lti.ws4j.RelatednessCalculator;
 import edu.cmu.lti.ws4j.impl.WuPalmer;
 import edu.cmu.lti.ws4j.util.WS4JConfiguration;
+import edu.university.ecs.lab.semantics.util.entitysimilarity.IdentifierNormalizer.NormalizedIdentifier;
 import edu.university.ecs.lab.semantics.util.entityextraction.EntityField;
 
 import org.apache.commons.lang3.tuple.ImmutablePair;
 
+/**
+ * similarity util methods, instances are immutable and can be shared by any number of threads
+ */
 public class SimilarityUtilsImpl implements SimilarityUtils {
 
-	private static double ENTITY_SIMILARITY_CUTOFF = 0.9; 
+	// identifies the scores kept in the LexicalSimilarityStore, change it when the measure or database changes
+	public static final String LEXICAL_SOURCE = "wu-palmer/nict-wordnet";
+	private static final double ENTITY_SIMILARITY_CUTOFF = 0.9; 
     // used for finding Wu Palmer similarity *******************
-    private static ILexicalDatabase db = new NictWordNet();
-    private static RelatednessCalculator rc = new WuPalmer(db);
+    private static final ILexicalDatabase db = new NictWordNet();
+    private static final RelatednessCalculator rc = new WuPalmer(db);
     // *********************************************************
 
-    /**
-     * stores last computer entity similarity to try and short circuit computation
-     */
-    private class EntitySimilarity {
+    static {
+        // configured once, WS4JConfiguration is a global singleton
+        WS4JConfiguration.getInstance().setMFS(true);
+    }
 
-        // the first entity
-        Entity entityOne = null;
+    // store keys of the noun tokens, shared by all instances
+    private static final Map<String, String> NOUN_KEYS = new ConcurrentHashMap<>();
 
-        // the second entity
-        Entity entityTwo = null;
+    // word pair scores, looked up before the lexical database is consulted
+    private final LexicalSimilarityStore lexicalSimilarityStore;
 
-        // the computed similarity and mapping between the fields
-        ImmutablePair<Double, Map<EntityField, Map.Entry<Double, EntityField>> > savedVal;
+    public SimilarityUtilsImpl() {
+        this(null);
     }
 
-    // stores last computer entity similarity to try and short circuit computation
-    private EntitySimilarity lastComputedEntitySimilarity = new EntitySimilarity();
+    /**
+     * @param lexicalSimilarityStore persisted word pair scores, an in-memory store is used when null
+     */
+    public SimilarityUtilsImpl(LexicalSimilarityStore lexicalSimilarityStore) {
+        this.lexicalSimilarityStore = lexicalSimilarityStore != null
+                ? lexicalSimilarityStore
+                : LexicalSimilarityStore.inMemory(LEXICAL_SOURCE);
+    }
 
     @Override
     public double calculateSimilarity(Entity entityOne, Entity entityTwo, boolean includingName, boolean useWuPalmer) {
@@ -90,12 +107,6 @@ public class SimilarityUtilsImpl implements SimilarityUtils {
      */
     @Override
     public ImmutablePair<Double, Map<EntityField, Map.Entry<Double, EntityField>> > globalFieldSimilarity(Entity entityOne, Entity entityTwo, boolean useWuPalmer) {
-        //store the result of the last comp
-        // intentionally using == here instead of equals because we only short circuit for exact objects
-        if(entityOne == lastComputedEntitySimilarity.entityOne && entityTwo == lastComputedEntitySimilarity.entityTwo){
-            return lastComputedEntitySimilarity.savedVal;
-        }
-
         // if the entity names are too dissimilar then dont try
         double nameSimilarity = nameSimilarity(entityOne.getEntityName(), entityTwo.getEntityName(), useWuPalmer);
 //        if(nameSimilarity < ENTITY_SIMILARITY_CUTOFF){
@@ -200,10 +211,6 @@ public class SimilarityUtilsImpl implements SimilarityUtils {
         // compute the return value
 //        ImmutablePair<Double, Map<EntityField, EntityField> > toReturn = new ImmutablePair<>(nameSimilarity, fieldMap);
 
-        // save the computed values to maybe short circuit next time
-        lastComputedEntitySimilarity.entityOne = entityOne;
-        lastComputedEntitySimilarity.entityTwo = entityTwo;
-        lastComputedEntitySimilarity.savedVal = toReturn;
         return toReturn;
     }
     
@@ -217,41 +224,140 @@ public class SimilarityUtilsImpl implements SimilarityUtils {
      */
     @Override
     public double nameSimilarity(String one, String two, boolean useWuPalmer) {
-        if(useWuPalmer) return  wuPalmerWordSimilarity(NameStripper.getBasicName(one), POS.n, NameStripper.getBasicName(two), POS.n);
-        else return basicWordSimilarity(NameStripper.getBasicName(one), NameStripper.getBasicName(two));
+        NormalizedIdentifier first = IdentifierNormalizer.normalize(one);
+        NormalizedIdentifier second = IdentifierNormalizer.normalize(two);
+        // only the basic names, so packages and generic wrappers like ResponseEntity<Order> do not count
+        if(useWuPalmer) return tokenSimilarity(first.getBasicTokens(), second.getBasicTokens());
+        else return basicWordSimilarity(first, second);
     }
 
 
-    private static double basicWordSimilarity(String word1, String word2){
-        if(word1.equalsIgnoreCase(word2)) return 1.0;
+    // the last alphanumeric part of the names, ignoring case, so List<Order> and com.x.Order are both Order
+    private static double basicWordSimilarity(NormalizedIdentifier one, NormalizedIdentifier two){
+        if(one.getBasicName().equalsIgnoreCase(two.getBasicName())) return 1.0;
         else return 0.0;
     }
 
+    /**
+     * finds the similarity of two tokenized basic names, every token is matched with its best
+     * counterpart in the other identifier and the scores are averaged over both sides
+     * @param tokensOne the tokens of the first identifier
+     * @param tokensTwo the tokens of the second identifier
+     * @return the average best Wu Palmer similarity of the tokens
+     */
+    private double tokenSimilarity(String[] tokensOne, String[] tokensTwo) {
+        if (tokensOne.length == 0 || tokensTwo.length == 0) {
+            return 0.0;
+        }
+        String[] keysTwo = new String[tokensTwo.length];
+        for (int j = 0; j < tokensTwo.length; j++) {
+            keysTwo[j] = nounKey(tokensTwo[j]);
+        }
+        // every token pair is scored once, the best of each token one is its row maximum
+        // and the best of each token two its column maximum
+        double sum = 0.0;
+        double[] bestTwo = new double[tokensTwo.length];
+        for (String tokenOne : tokensOne) {
+            String keyOne = nounKey(tokenOne);
+            double bestOne = 0.0;
+            for (int j = 0; j < tokensTwo.length; j++) {
+                double score = tokenOne.equals(tokensTwo[j]) ? 1.0
+                        : wuPalmerWordSimilarity(tokenOne, POS.n, keyOne, tokensTwo[j], POS.n, keysTwo[j]);
+                if (score > bestOne) {
+                    bestOne = score;
+                }
+                if (score > bestTwo[j]) {
+                    bestTwo[j] = score;
+                }
+            }
+            sum += bestOne;
+        }
+        for (double best : bestTwo) {
+            sum += best;
+        }
+        return sum / (tokensOne.length + tokensTwo.length);
+    }
+
+    @Override
+    public void scoreWordPairs(Collection<Entity> entities) {
+        // entity names are compared with entity names and field names with field names
+        Set<String> nameTokens = new TreeSet<>();
+        Set<String> fieldTokens = new TreeSet<>();
+        for (Entity entity : entities) {
+            if (entity.getEntityName() != null) {
+                nameTokens.addAll(Arrays.asList(IdentifierNormalizer.normalize(entity.getEntityName()).getBasicTokens()));
+            }
+            for (EntityField field : entity.getFields()) {
+                if (field.getName() != null) {
+                    fieldTokens.addAll(Arrays.asList(IdentifierNormalizer.normalize(field.getName()).getBasicTokens()));
+                }
+            }
+        }
+        scoreWordPairs(nameTokens.toArray(new String[0]));
+        scoreWordPairs(fieldTokens.toArray(new String[0]));
+    }
+
+    // equal tokens score 1.0 without a lookup and the store keeps each pair in one order
+    private void scoreWordPairs(String[] tokens) {
+        String[] keys = new String[tokens.length];
+        for (int i = 0; i < tokens.length; i++) {
+            keys[i] = nounKey(tokens[i]);
+        }
+        for (int i = 0; i < tokens.length; i++) {
+            for (int j = i + 1; j < tokens.length; j++) {
+                wuPalmerWordSimilarity(tokens[i], POS.n, keys[i], tokens[j], POS.n, keys[j]);
+            }
+        }
+    }
+
+    // the store key of a noun, built once per token
+    private static String nounKey(String token) {
+        String key = NOUN_KEYS.get(token);
+        if (key == null) {
+            key = NOUN_KEYS.computeIfAbsent(token, t -> POS.n.name() + ":" + t);
+        }
+        return key;
+    }
+
     /**
      * finds the wu palmer similarity of two words
      * @param word1 the first word to compare
      * @param posWord1 the pos of the first word
      * @param word2 the second word to compare
      * @param posWord2 the pos of the second word
+     * @param key1 the store key of the first word, pos:word
+     * @param key2 the store key of the second word
      * @return the wu palmer similarity of the words given their pos
      */
     // https://blog.thedigitalgroup.com/words-similarityrelatedness-using-wupalmer-algorithm
-    private static double wuPalmerWordSimilarity(String word1, POS posWord1, String word2, POS posWord2) {
+    private double wuPalmerWordSimilarity(String word1, POS posWord1, String key1, String word2, POS posWord2, String key2) {
+        Double stored = lexicalSimilarityStore.get(key1, key2);
+        if (stored != null) {
+            return stored;
+        }
         double maxScore = 0.0;
-        try {
-            WS4JConfiguration.getInstance().setMFS(true);
-            List<Concept> synsets1 = (List < Concept > ) db.getAllConcepts(word1, posWord1.name());
-            List < Concept > synsets2 = (List < Concept > ) db.getAllConcepts(word2, posWord2.name());
-            for (Concept synset1: synsets1) {
-                for (Concept synset2: synsets2) {
-                    Relatedness relatedness = rc.calcRelatednessOfSynset(synset1, synset2);
-                    double score = relatedness.getScore();
-                    if (score > maxScore) {
-                        maxScore = score;
+        boolean scored = false;
+        // the lexical database is not thread-safe, only pairs missing from the store get here
+        synchronized (db) {
+            try {
+                List<Concept> synsets1 = (List < Concept > ) db.getAllConcepts(word1, posWord1.name());
+                List < Concept > synsets2 = (List < Concept > ) db.getAllConcepts(word2, posWord2.name());
+                for (Concept synset1: synsets1) {
+                    for (Concept synset2: synsets2) {
+                        Relatedness relatedness = rc.calcRelatednessOfSynset(synset1, synset2);
+                        double score = relatedness.getScore();
+                        if (score > maxScore) {
+                            maxScore = score;
+                        }
                     }
                 }
-            }
-        } catch (Exception e) {}
+                scored = true;
+            } catch (Exception e) {}
+        }
+        // only keep scores the database actually answered, a failed lookup may succeed next run
+        if (scored) {
+            lexicalSimilarityStore.put(key1, key2, maxScore);
+        }
         return maxScore;
     }
 }
@@ -0,0 +1,224 @@
+package edu.university.ecs.lab.semantics.util.entitysimilarity;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * read-only word embedding matrix backed by a memory-mapped file
+ *
+ * text vectors (GloVe, or fastText .vec with its count/dimension header line) are converted once into a binary file
+ * of unit-length little-endian float32 rows, so the cosine of two words is the dot product of their rows.
+ * the binary layout is: magic, version, dimension, word count, source length, source modification time,
+ * the words as (unsigned short length, UTF-8 bytes), padding to 4 bytes, then count x dimension floats
+ */
+public class WordVectors {
+
+    private static final int MAGIC = 0x4D535756;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 4 + 4 + 4 + 4 + 8 + 8;
+
+    private final int dimension;
+    private final Map<String, Integer> rows;
+    // one float buffer per mapped segment, a single mapping is limited to 2GB
+    private final FloatBuffer[] segments;
+    private final int rowsPerSegment;
+
+    private WordVectors(int dimension, Map<String, Integer> rows, FloatBuffer[] segments, int rowsPerSegment) {
+        this.dimension = dimension;
+        this.rows = rows;
+        this.segments = segments;
+        this.rowsPerSegment = rowsPerSegment;
+    }
+
+    /**
+     * maps the vectors at the given path, text vectors are converted next to the other outputs first
+     * @param vectorsPath a binary vectors file written by this class, or a GloVe / fastText text file
+     * @param outputPath the directory the converted binary file is kept in
+     */
+    public static WordVectors open(String vectorsPath, String outputPath) throws IOException {
+        Path source = Paths.get(vectorsPath);
+        if (isBinary(source)) {
+            return map(source);
+        }
+        Path binary = Paths.get(outputPath, source.getFileName().toString() + ".bin");
+        if (!isConverted(binary, source)) {
+            convert(source, binary);
+        }
+        return map(binary);
+    }
+
+    public int getDimension() {
+        return dimension;
+    }
+
+    public int size() {
+        return rows.size();
+    }
+
+    /**
+     * @return the row of the word, or -1 if the word has no vector
+     */
+    public int indexOf(String word) {
+        Integer row = rows.get(word);
+        return row == null ? -1 : row;
+    }
+
+    /**
+     * adds the unit vector of the row to the target array
+     */
+    public void addTo(int row, float[] target) {
+        FloatBuffer segment = segments[row / rowsPerSegment];
+        int offset = (row % rowsPerSegment) * dimension;
+        for (int i = 0; i < dimension; i++) {
+            target[i] += segment.get(offset + i);
+        }
+    }
+
+    private static boolean isBinary(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+            return channel.read(magic) == 4 && magic.getInt(0) == MAGIC;
+        }
+    }
+
+    private static boolean isConverted(Path binary, Path source) throws IOException {
+        if (!Files.exists(binary)) {
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(binary, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            if (channel.read(header) != HEADER_BYTES) {
+                return false;
+            }
+            return header.getInt(0) == MAGIC && header.getInt(4) == VERSION
+                    && header.getLong(16) == Files.size(source)
+                    && header.getLong(24) == Files.getLastModifiedTime(source).toMillis();
+        }
+    }
+
+    private static WordVectors map(Path binary) throws IOException {
+        try (FileChannel channel = FileChannel.open(binary, StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(size, Integer.MAX_VALUE))
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException("Not a word vectors file: " + binary);
+            }
+            int dimension = header.getInt();
+            int count = header.getInt();
+            if (dimension <= 0 || count <= 0) {
+                throw new IOException("No word vectors in " + binary + " (dimension " + dimension + ", " + count + " words)");
+            }
+            header.position(HEADER_BYTES);
+            Map<String, Integer> rows = new HashMap<>(count * 2);
+            for (int row = 0; row < count; row++) {
+                byte[] word = new byte[Short.toUnsignedInt(header.getShort())];
+                header.get(word);
+                rows.putIfAbsent(new String(word, StandardCharsets.UTF_8), row);
+            }
+            long matrixStart = align(header.position());
+            int rowBytes = dimension * Float.BYTES;
+            int rowsPerSegment = Math.max(1, Integer.MAX_VALUE / rowBytes);
+            int segmentCount = (count + rowsPerSegment - 1) / rowsPerSegment;
+            FloatBuffer[] segments = new FloatBuffer[segmentCount];
+            for (int i = 0; i < segmentCount; i++) {
+                long start = matrixStart + (long) i * rowsPerSegment * rowBytes;
+                long length = (long) Math.min(rowsPerSegment, count - i * rowsPerSegment) * rowBytes;
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, length)
+                        .order(ByteOrder.LITTLE_ENDIAN)
+                        .asFloatBuffer();
+            }
+            return new WordVectors(dimension, rows, segments, rowsPerSegment);
+        }
+    }
+
+    private static void convert(Path source, Path binary) throws IOException {
+        Path matrix = Files.createTempFile(binary.getParent(), "word-vectors", ".tmp");
+        Path converted = Files.createTempFile(binary.getParent(), "word-vectors", ".bin.tmp");
+        List<String> words = new ArrayList<>();
+        int dimension = -1;
+        try (BufferedReader reader = Files.newBufferedReader(source, StandardCharsets.UTF_8);
+             OutputStream out = new BufferedOutputStream(Files.newOutputStream(matrix))) {
+            ByteBuffer row = null;
+            String line;
+            boolean first = true;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.trim().split(" ");
+                // fastText starts with a "count dimension" line
+                if (first && parts.length == 2) {
+                    first = false;
+                    continue;
+                }
+                first = false;
+                if (dimension < 0) {
+                    dimension = parts.length - 1;
+                    row = ByteBuffer.allocate(dimension * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                }
+                if (parts.length - 1 != dimension || parts[0].getBytes(StandardCharsets.UTF_8).length > 0xFFFF) {
+                    continue;
+                }
+                float[] vector = new float[dimension];
+                double norm = 0.0;
+                for (int i = 0; i < dimension; i++) {
+                    vector[i] = Float.parseFloat(parts[i + 1]);
+                    norm += vector[i] * vector[i];
+                }
+                norm = norm == 0.0 ? 1.0 : Math.sqrt(norm);
+                row.clear();
+                for (int i = 0; i < dimension; i++) {
+                    row.putFloat((float) (vector[i] / norm));
+                }
+                out.write(row.array());
+                words.add(parts[0]);
+            }
+        }
+        if (dimension <= 0 || words.isEmpty()) {
+            Files.deleteIfExists(matrix);
+            Files.deleteIfExists(converted);
+            throw new IOException("No word vectors in " + source + " (dimension " + Math.max(dimension, 0) + ", "
+                    + words.size() + " words)");
+        }
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(converted)))) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putInt(dimension).putInt(words.size())
+                    .putLong(Files.size(source)).putLong(Files.getLastModifiedTime(source).toMillis());
+            out.write(header.array());
+            long position = HEADER_BYTES;
+            for (String word : words) {
+                byte[] bytes = word.getBytes(StandardCharsets.UTF_8);
+                out.write(bytes.length & 0xFF);
+                out.write((bytes.length >>> 8) & 0xFF);
+                out.write(bytes);
+                position += Short.BYTES + bytes.length;
+            }
+            for (long i = position; i < align(position); i++) {
+                out.write(0);
+            }
+            Files.copy(matrix, out);
+        } finally {
+            Files.deleteIfExists(matrix);
+        }
+        Files.move(converted, binary, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static long align(long position) {
+        return (position + Float.BYTES - 1) / Float.BYTES * Float.BYTES;
+    }
+}
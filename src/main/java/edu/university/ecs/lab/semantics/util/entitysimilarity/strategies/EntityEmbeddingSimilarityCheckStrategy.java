@@ -0,0 +1,132 @@
+package edu.university.ecs.lab.semantics.util.entitysimilarity.strategies;
+
+import java.util.Arrays;
+import java.util.List;
+
+import edu.university.ecs.lab.semantics.entity.graph.MsArgument;
+import edu.university.ecs.lab.semantics.util.entitysimilarity.IdentifierNormalizer;
+import edu.university.ecs.lab.semantics.util.entitysimilarity.IdentifierNormalizer.NormalizedIdentifier;
+import edu.university.ecs.lab.semantics.util.entitysimilarity.WordVectors;
+
+/**
+ * scores names by the cosine of their averaged word vectors
+ *
+ * each identifier is split into tokens, the unit vectors of the known tokens are summed into a per-thread
+ * scratch array and the two sums are compared, so synonyms like order / booking score high without any WordNet lookup
+ */
+public class EntityEmbeddingSimilarityCheckStrategy implements EntitySimilarityCheckStrategy {
+
+	private final WordVectors wordVectors;
+	private final ThreadLocal<Scratch> scratch;
+
+	public EntityEmbeddingSimilarityCheckStrategy(WordVectors wordVectors) {
+		this.wordVectors = wordVectors;
+		this.scratch = ThreadLocal.withInitial(() -> new Scratch(wordVectors.getDimension()));
+	}
+
+	@Override
+	public double calculateSimilarity(String packageName1, String packageName2, String variableName1, String variableName2) {
+		return nameSimilarity(variableName1, variableName2);
+	}
+
+	@Override
+	public double calculateArgumentsSimilarity(List<MsArgument> aArguments, List<MsArgument> bArguments) {
+
+		if (aArguments.isEmpty() && bArguments.isEmpty()) {
+			return 1.0;
+		}
+
+		boolean[] usedArguments = scratch.get().used(bArguments.size());
+		double argumentSimilarity = 0;
+		for (MsArgument aArgument : aArguments) {
+			if (aArgument.getReturnType() == null) {
+				continue;
+			}
+			int best = -1;
+			double bestSimilarity = 0;
+			for (int j = 0; j < bArguments.size(); j++) {
+				String bType = bArguments.get(j).getReturnType();
+				if (bType == null || usedArguments[j]) {
+					continue;
+				}
+				double similarity = nameSimilarity(aArgument.getReturnType(), bType);
+				if (similarity > bestSimilarity) {
+					best = j;
+					bestSimilarity = similarity;
+				}
+			}
+			if (best >= 0) {
+				usedArguments[best] = true;
+				argumentSimilarity += bestSimilarity;
+			}
+		}
+		return argumentSimilarity / Math.max(aArguments.size(), bArguments.size());
+	}
+
+	/**
+	 * @return 1.0 for identifiers with the same tokens, otherwise the cosine of the token vector sums,
+	 * 0.0 if one of them has no known token
+	 */
+	public double nameSimilarity(String name1, String name2) {
+		NormalizedIdentifier identifier1 = IdentifierNormalizer.normalize(name1);
+		NormalizedIdentifier identifier2 = IdentifierNormalizer.normalize(name2);
+		if (identifier1.getNormalized().equals(identifier2.getNormalized())) {
+			return 1.0;
+		}
+		Scratch vectors = scratch.get();
+		if (!embed(identifier1.getTokens(), vectors.a) || !embed(identifier2.getTokens(), vectors.b)) {
+			return 0.0;
+		}
+		return cosine(vectors.a, vectors.b);
+	}
+
+	private boolean embed(String[] tokens, float[] target) {
+		Arrays.fill(target, 0f);
+		boolean found = false;
+		for (String token : tokens) {
+			int row = wordVectors.indexOf(token);
+			if (row >= 0) {
+				wordVectors.addTo(row, target);
+				found = true;
+			}
+		}
+		return found;
+	}
+
+	private static double cosine(float[] a, float[] b) {
+		double dot = 0.0;
+		double normA = 0.0;
+		double normB = 0.0;
+		for (int i = 0; i < a.length; i++) {
+			dot += a[i] * b[i];
+			normA += a[i] * a[i];
+			normB += b[i] * b[i];
+		}
+		if (normA == 0.0 || normB == 0.0) {
+			return 0.0;
+		}
+		// opposite directions count as unrelated
+		return Math.max(0.0, Math.min(1.0, dot / Math.sqrt(normA * normB)));
+	}
+
+	private static final class Scratch {
+
+		private final float[] a;
+		private final float[] b;
+		private boolean[] used = new boolean[8];
+
+		private Scratch(int dimension) {
+			this.a = new float[dimension];
+			this.b = new float[dimension];
+		}
+
+		private boolean[] used(int size) {
+			if (used.length < size) {
+				used = new boolean[Math.max(size, used.length * 2)];
+			} else {
+				Arrays.fill(used, 0, size, false);
+			}
+			return used;
+		}
+	}
+}
@@ -1,15 +1,25 @@
 package edu.university.ecs.lab.semantics.util.entitysimilarity.strategies;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import edu.university.ecs.lab.semantics.entity.graph.MsArgument;
+import edu.university.ecs.lab.semantics.util.entitysimilarity.IdentifierNormalizer;
 
 public class EntityLiteralSimilarityCheckStrategy implements EntitySimilarityCheckStrategy {
 
+	// the sorted type numbers of every argument list, lists with the same types share them
+	private final Map<List<MsArgument>, int[]> argumentTypes = new ConcurrentHashMap<>();
+	private final Map<String, Integer> typeNumbers = new ConcurrentHashMap<>();
+	private final AtomicInteger nextTypeNumber = new AtomicInteger();
+
 	@Override
 	public double calculateSimilarity(String packageName1, String packageName2, String variableName1, String variableName2) {
-		return variableName1.toLowerCase().equals(variableName2.toLowerCase()) 
+		return IdentifierNormalizer.normalize(variableName1).getLowerCase()
+				.equals(IdentifierNormalizer.normalize(variableName2).getLowerCase())
 				? 1.0 : 0.0;
 	}
 	
@@ -20,39 +30,40 @@ public class EntityLiteralSimilarityCheckStrategy implements EntitySimilarityChe
 			return 1.0;
 		}
 		
-		double argumentSimilarity = 0;
-        double maxNumberArguments = Math.max(aArguments.size(), bArguments.size());
-        
-         List<Integer> usedArguments = new ArrayList<>();
-         for (int i = 0; i < aArguments.size(); i++) {
-             for (int j = 0; j < bArguments.size(); j++) {
+		// every argument of a is matched with an unused argument of b of the same type,
+		// which is the size of the intersection of the two type multisets
+		int[] aTypes = argumentTypes.computeIfAbsent(aArguments, this::sortedTypes);
+		int[] bTypes = argumentTypes.computeIfAbsent(bArguments, this::sortedTypes);
+		int argumentSimilarity = 0;
+		for (int k = 0, l = 0; k < aTypes.length && l < bTypes.length; ) {
+			if (aTypes[k] < bTypes[l]) {
+				k++;
+			} else if (aTypes[k] > bTypes[l]) {
+				l++;
+			} else {
+				argumentSimilarity++;
+				k++;
+				l++;
+			}
+		}
+		return (double) argumentSimilarity / Math.max(aArguments.size(), bArguments.size());
+	}
 
-                 if (aArguments.get(i).getReturnType() != null
-                         && bArguments.get(j).getReturnType() != null
-                         && !usedArguments.contains(j)
-                         && aArguments.get(i).getReturnType().toLowerCase().equals(bArguments.get(j).getReturnType().toLowerCase())) {
-                             usedArguments.add(j);
-//                             same += 1.0;
-                             argumentSimilarity += 1;
-                     break;
-                 }
-           	  
-//           	  if (aArguments.get(i).getReturnType() != null
-//                         && bArguments.get(j).getReturnType() != null
-//                         && !usedArguments.contains(j)) {
-//                          
-//           		  if (aArguments.get(i).getReturnType().toLowerCase()
-//           				  .equals(bArguments.get(j).getReturnType().toLowerCase())) {
-//           			  
-//           			  argumentSimilarity += 1;
-//           			  usedArguments.add(j);
-//           		  }
-//                     break;
-//                 } 
-                 
-             }
-         }
-         return argumentSimilarity/maxNumberArguments;
-   }
+	/**
+	 * @return the numbers of the lower case types of the arguments in ascending order, without unknown types
+	 */
+	private int[] sortedTypes(List<MsArgument> arguments) {
+		int[] types = new int[arguments.size()];
+		int size = 0;
+		for (MsArgument argument : arguments) {
+			if (argument.getReturnType() != null) {
+				types[size++] = typeNumbers.computeIfAbsent(IdentifierNormalizer.normalize(argument.getReturnType()).getLowerCase(),
+						type -> nextTypeNumber.getAndIncrement());
+			}
+		}
+		types = Arrays.copyOf(types, size);
+		Arrays.sort(types);
+		return types;
+	}
 
 }
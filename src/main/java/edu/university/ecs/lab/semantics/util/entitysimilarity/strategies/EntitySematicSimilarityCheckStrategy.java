@@ -2,47 +2,79 @@ package edu.university.ecs.lab.semantics.util.entitysimilarity.strategies;
 
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import edu.university.ecs.lab.semantics.entity.graph.MsArgument;
-import edu.university.ecs.lab.semantics.util.MsCache;
 import edu.university.ecs.lab.semantics.util.entityextraction.EntityField;
 import edu.university.ecs.lab.semantics.util.entitysimilarity.Entity;
+import edu.university.ecs.lab.semantics.util.entitysimilarity.EntitySimilarityMatrix;
+import edu.university.ecs.lab.semantics.util.entitysimilarity.IdentifierNormalizer;
+import edu.university.ecs.lab.semantics.util.entitysimilarity.SimilarityContext;
 import edu.university.ecs.lab.semantics.util.entitysimilarity.SimilarityUtils;
 import edu.university.ecs.lab.semantics.util.entitysimilarity.SimilarityUtilsImpl;
 
 public class EntitySematicSimilarityCheckStrategy implements EntitySimilarityCheckStrategy {
 	
-	private boolean useWuPalmer;
-	private SimilarityUtils similarityUtils;
+	private static final int MAX_CACHED_ENTITY_PAIRS = 1 << 20;
+	
+	private final SimilarityContext context;
+	private final boolean useWuPalmer;
+	private final SimilarityUtils similarityUtils;
+	// the similarities of entity pairs the matrix does not hold, each pair is compared once
+	private final Map<EntityPair, Double> entitySimilarities = new ConcurrentHashMap<>();
 
-	public EntitySematicSimilarityCheckStrategy(boolean useWuPalmer) {
+	public EntitySematicSimilarityCheckStrategy(SimilarityContext context, boolean useWuPalmer) {
+		this.context = context;
 		this.useWuPalmer = useWuPalmer;
-		this.similarityUtils = new SimilarityUtilsImpl();
+		this.similarityUtils = new SimilarityUtilsImpl(context.getLexicalSimilarityStore());
 	}
 
 	@Override
 	public double calculateSimilarity(String packageName1, String packageName2, String variableName1, String variableName2) {
 		double similarityValue = 0;
     	
-		variableName1 = variableName1.toLowerCase();
-		variableName2 = variableName2.toLowerCase();
+		String lowerCaseName1 = IdentifierNormalizer.normalize(variableName1).getLowerCase();
+		String lowerCaseName2 = IdentifierNormalizer.normalize(variableName2).getLowerCase();
+		
+		String variableFullName1 = packageName1 + "." + lowerCaseName1;
+		String variableFullName2 = packageName2 + "." + lowerCaseName2;
 		
-		String variableFullName1 = packageName1 + "." + variableName1;
-		String variableFullName2 = packageName2 + "." + variableName2;
+		EntitySimilarityMatrix matrix = context.getEntitySimilarityMatrix();
+		int entityIndex1 = -1;
+		int entityIndex2 = -1;
+		if (matrix != null && matrix.isUseWuPalmer() == this.useWuPalmer) {
+			entityIndex1 = matrix.indexOf(variableFullName1);
+			entityIndex2 = matrix.indexOf(variableFullName2);
+		}
 		
-		if (MsCache.mappedEntities.containsKey(variableFullName1) && MsCache.mappedEntities.containsKey(variableFullName2)) {
-    		Entity entity1 = MsCache.mappedEntities.get(variableFullName1);
-    		Entity entity2 = MsCache.mappedEntities.get(variableFullName2);
-    		similarityValue = this.similarityUtils.calculateSimilarity(entity1, entity2, true, this.useWuPalmer);
-    	} if (variableName1.equals(variableName2)) {
+		if (entityIndex1 >= 0 && entityIndex2 >= 0) {
+			similarityValue = matrix.get(entityIndex1, entityIndex2);
+		} else if (context.getEntity(variableFullName1) != null && context.getEntity(variableFullName2) != null) {
+    		similarityValue = entitySimilarity(context.getEntity(variableFullName1), context.getEntity(variableFullName2));
+    	} else if (lowerCaseName1.equals(lowerCaseName2)) {
     		similarityValue = 1.0;
     	} else {
+    		// the original case is kept so that camelCase names split into words
     		similarityValue = this.similarityUtils.nameSimilarity(variableName1, variableName2, this.useWuPalmer);
     	}
     	return similarityValue;
 	}
 	
+	private double entitySimilarity(Entity entity1, Entity entity2) {
+		EntityPair pair = new EntityPair(entity1, entity2);
+		Double cached = entitySimilarities.get(pair);
+		if (cached != null) {
+			return cached;
+		}
+		double similarityValue = this.similarityUtils.calculateSimilarity(entity1, entity2, true, this.useWuPalmer);
+		if (entitySimilarities.size() < MAX_CACHED_ENTITY_PAIRS) {
+			entitySimilarities.put(pair, similarityValue);
+		}
+		return similarityValue;
+	}
+	
 	@Override
 	public double calculateArgumentsSimilarity(List<MsArgument> aArguments, List<MsArgument> bArguments) {
 		
@@ -75,4 +107,32 @@ public class EntitySematicSimilarityCheckStrategy implements EntitySimilarityChe
 		}
 		return fields;
 	}
+	
+	/**
+	 * two entities of the context, compared by identity like the entity map hands them out
+	 */
+	private static final class EntityPair {
+		
+		private final Entity one;
+		private final Entity two;
+		
+		private EntityPair(Entity one, Entity two) {
+			this.one = one;
+			this.two = two;
+		}
+		
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof EntityPair)) {
+				return false;
+			}
+			EntityPair other = (EntityPair) o;
+			return one == other.one && two == other.two;
+		}
+		
+		@Override
+		public int hashCode() {
+			return 31 * System.identityHashCode(one) + System.identityHashCode(two);
+		}
+	}
 }
@@ -4,9 +4,27 @@ import java.util.List;
 
 import edu.university.ecs.lab.semantics.entity.graph.MsArgument;
 
+/**
+ * scores type and argument similarity between two flows
+ *
+ * implementations are thread-safe: everything they read is passed in or fixed at construction
+ * (see SimilarityContext), besides concurrent caches of their own results, so one instance can serve all
+ * clone detection threads
+ */
 public interface EntitySimilarityCheckStrategy {
 	
+	/**
+	 * @param packageName1 the package prefix of the first flow
+	 * @param packageName2 the package prefix of the second flow
+	 * @param variableName1 the first type or variable name
+	 * @param variableName2 the second type or variable name
+	 * @return the similarity of the two names between 0 and 1
+	 */
 	public double calculateSimilarity(String packageName1, String packageName2, String variableName1, String variableName2);
+
+	/**
+	 * @return the similarity of the two argument lists between 0 and 1
+	 */
 	public double calculateArgumentsSimilarity(List<MsArgument> aArguments, List<MsArgument> bArguments);
 
 }
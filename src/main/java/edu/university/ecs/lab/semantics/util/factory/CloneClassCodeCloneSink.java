@@ -0,0 +1,224 @@
+package edu.university.ecs.lab.semantics.util.factory;
+
+import edu.university.ecs.lab.semantics.entity.MsCodeClone;
+import edu.university.ecs.lab.semantics.entity.MsFlowEntity;
+import edu.university.ecs.lab.semantics.util.MsCache;
+import edu.university.ecs.lab.semantics.util.file.CsvWriter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * groups the flows connected by type A or B clones into clone classes and writes clone-classes.csv when detection is done
+ *
+ * the flows are joined in a union-find over flow ids as the clones arrive, the clone edges are kept as primitive arrays
+ * for the class averages. with a threshold above 0 every class is split further into cliques, groups in which every
+ * two flows are a clone with at least that global similarity. a clique starts from the best connected flow not placed yet
+ * and takes every further flow that is such a clone of all its members
+ */
+public class CloneClassCodeCloneSink implements CodeCloneSink {
+
+    public static final String FILE_NAME = "clone-classes";
+
+    private final String path;
+    private final double threshold;
+    private final int[] parent;
+    private final int[] rank;
+    private int[] edgeA = new int[64];
+    private int[] edgeB = new int[64];
+    private double[] edgeSimilarity = new double[64];
+    private int edges = 0;
+
+    /**
+     * @param threshold the global similarity every pair in a class must reach, 0 keeps the connected components
+     */
+    public CloneClassCodeCloneSink(String path, double threshold) {
+        this.path = path;
+        this.threshold = threshold;
+        int flows = MsCache.msFlows.size();
+        this.parent = new int[flows];
+        this.rank = new int[flows];
+        for (int i = 0; i < flows; i++) {
+            parent[i] = i;
+        }
+    }
+
+    @Override
+    public void accept(MsCodeClone msCodeClone) {
+        if (!(msCodeClone.isTypeA() || msCodeClone.isTypeB()) || msCodeClone.getAId() < 0 || msCodeClone.getBId() < 0) {
+            return;
+        }
+        if (edges == edgeA.length) {
+            int capacity = edges * 2;
+            edgeA = Arrays.copyOf(edgeA, capacity);
+            edgeB = Arrays.copyOf(edgeB, capacity);
+            edgeSimilarity = Arrays.copyOf(edgeSimilarity, capacity);
+        }
+        edgeA[edges] = msCodeClone.getAId();
+        edgeB[edges] = msCodeClone.getBId();
+        edgeSimilarity[edges] = msCodeClone.getGlobalSimilarity();
+        edges++;
+        union(msCodeClone.getAId(), msCodeClone.getBId());
+    }
+
+    @Override
+    public void close() {
+        List<int[]> classes = threshold > 0 ? cliques() : components();
+        classes.sort(Comparator.<int[]>comparingInt(members -> -members.length).thenComparingInt(members -> members[0]));
+        try (CsvWriter csv = new CsvWriter(path, FILE_NAME)) {
+            csv.header("class", "size", "services", "average global", "cfg");
+            int[] classOf = new int[parent.length];
+            Arrays.fill(classOf, -1);
+            for (int c = 0; c < classes.size(); c++) {
+                for (int flow : classes.get(c)) {
+                    classOf[flow] = c;
+                }
+            }
+            double[] similaritySums = new double[classes.size()];
+            int[] similarityCounts = new int[classes.size()];
+            for (int e = 0; e < edges; e++) {
+                int c = classOf[edgeA[e]];
+                if (c >= 0 && c == classOf[edgeB[e]]) {
+                    similaritySums[c] += edgeSimilarity[e];
+                    similarityCounts[c]++;
+                }
+            }
+            for (int c = 0; c < classes.size(); c++) {
+                int[] members = classes.get(c);
+                int services = services(members);
+                double average = similarityCounts[c] == 0 ? 0.0 : similaritySums[c] / similarityCounts[c];
+                for (int flow : members) {
+                    MsFlowEntity msFlowEntity = MsCache.msFlows.get(flow);
+                    csv.cell(c + 1)
+                            .cell(members.length)
+                            .cell(services)
+                            .cell(average)
+                            .cell(msFlowEntity.getMsController().getMsId().getPath(), msFlowEntity.getMsControllerMethod().getMethodName())
+                            .endRow();
+                }
+            }
+        } catch (IOException e) {
+            System.err.format("IOException: %s%n", e);
+        }
+    }
+
+    private int find(int flow) {
+        while (parent[flow] != flow) {
+            parent[flow] = parent[parent[flow]];
+            flow = parent[flow];
+        }
+        return flow;
+    }
+
+    private void union(int a, int b) {
+        int rootA = find(a);
+        int rootB = find(b);
+        if (rootA == rootB) {
+            return;
+        }
+        if (rank[rootA] < rank[rootB]) {
+            parent[rootA] = rootB;
+        } else if (rank[rootA] > rank[rootB]) {
+            parent[rootB] = rootA;
+        } else {
+            parent[rootB] = rootA;
+            rank[rootA]++;
+        }
+    }
+
+    /**
+     * @return the flows of every component with at least two flows, in ascending id order
+     */
+    private List<int[]> components() {
+        int[] sizes = new int[parent.length];
+        for (int flow = 0; flow < parent.length; flow++) {
+            sizes[find(flow)]++;
+        }
+        int[][] members = new int[parent.length][];
+        int[] filled = new int[parent.length];
+        List<int[]> components = new ArrayList<>();
+        for (int flow = 0; flow < parent.length; flow++) {
+            int root = find(flow);
+            if (sizes[root] < 2) {
+                continue;
+            }
+            if (members[root] == null) {
+                members[root] = new int[sizes[root]];
+                components.add(members[root]);
+            }
+            members[root][filled[root]++] = flow;
+        }
+        return components;
+    }
+
+    /**
+     * splits every component into cliques of clones at or above the threshold, flows with the most such clones first
+     */
+    private List<int[]> cliques() {
+        Set<Long> strong = new HashSet<>();
+        int[] degrees = new int[parent.length];
+        for (int e = 0; e < edges; e++) {
+            if (edgeSimilarity[e] >= threshold && strong.add(key(edgeA[e], edgeB[e]))) {
+                degrees[edgeA[e]]++;
+                degrees[edgeB[e]]++;
+            }
+        }
+        List<int[]> cliques = new ArrayList<>();
+        for (int[] component : components()) {
+            Integer[] order = new Integer[component.length];
+            for (int k = 0; k < component.length; k++) {
+                order[k] = component[k];
+            }
+            Arrays.sort(order, Comparator.<Integer>comparingInt(flow -> -degrees[flow]).thenComparingInt(flow -> flow));
+            BitSet placed = new BitSet(component.length);
+            for (int seed = 0; seed < order.length; seed++) {
+                if (placed.get(seed) || degrees[order[seed]] == 0) {
+                    continue;
+                }
+                List<Integer> clique = new ArrayList<>();
+                clique.add(order[seed]);
+                placed.set(seed);
+                for (int k = seed + 1; k < order.length; k++) {
+                    if (!placed.get(k) && connectedToAll(strong, order[k], clique)) {
+                        clique.add(order[k]);
+                        placed.set(k);
+                    }
+                }
+                if (clique.size() > 1) {
+                    cliques.add(clique.stream().mapToInt(Integer::intValue).sorted().toArray());
+                }
+            }
+        }
+        return cliques;
+    }
+
+    private static boolean connectedToAll(Set<Long> strong, int flow, List<Integer> clique) {
+        for (int member : clique) {
+            if (!strong.contains(key(flow, member))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long key(int a, int b) {
+        return ((long) Math.min(a, b) << 32) | Math.max(a, b);
+    }
+
+    private static int services(int[] members) {
+        ModuleCloneCounter counter = MsCache.getModuleCloneCounter();
+        BitSet services = new BitSet();
+        for (int flow : members) {
+            for (int module : counter.getModules(flow)) {
+                services.set(module);
+            }
+        }
+        return services.cardinality();
+    }
+}
@@ -0,0 +1,31 @@
+package edu.university.ecs.lab.semantics.util.factory;
+
+import edu.university.ecs.lab.semantics.entity.MsCodeClone;
+
+/**
+ * receives the scored and classified code clones from CodeClonesFactory, one module pair at a time
+ */
+public interface CodeCloneSink {
+
+    /**
+     * called before the flows of modules i and j are compared
+     * @return false if the pair is already covered and must not be scored again
+     */
+    default boolean beginModulePair(int i, int j) {
+        return true;
+    }
+
+    void accept(MsCodeClone msCodeClone);
+
+    /**
+     * called after the last clone of modules i and j
+     */
+    default void endModulePair(int i, int j) {
+    }
+
+    /**
+     * called once after all module pairs
+     */
+    default void close() {
+    }
+}
@@ -2,7 +2,11 @@ package edu.university.ecs.lab.semantics.util.factory;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import edu.university.ecs.lab.semantics.entity.*;
 import edu.university.ecs.lab.semantics.entity.graph.*;
@@ -10,125 +14,314 @@ import edu.university.ecs.lab.semantics.util.MsCache;
 import edu.university.ecs.lab.semantics.util.entitysimilarity.Entity;
 import edu.university.ecs.lab.semantics.util.entitysimilarity.SimilarityUtils;
 import edu.university.ecs.lab.semantics.util.entitysimilarity.SimilarityUtilsImpl;
+import edu.university.ecs.lab.semantics.util.entitysimilarity.strategies.EntityLiteralSimilarityCheckStrategy;
 import edu.university.ecs.lab.semantics.util.entitysimilarity.strategies.EntitySimilarityCheckStrategy;
 
 public class CodeClonesFactory {
 	
-	private EntitySimilarityCheckStrategy entitySimilarityChecker;
+	private final EntitySimilarityCheckStrategy entitySimilarityChecker;
+	private final CodeCloneSink codeCloneSink;
+	private final Scope scope;
+	private final boolean signatureBuckets;
+	// null until findCodeClones, and when signature buckets are turned off
+	private FlowSignatures signatures;
+	// the normalized rest calls of every flow, built by findCodeClones
+	private RestCallIndex restCallIndex;
+	// the annotations and argument types of the flow methods as numbers, built by findCodeClones
+	private EncodedMethods encodedMethods;
+	// the first clone scored for each ordered pair of shared signature buckets, copied for the other flows of the buckets,
+	// kept for one module pair at a time and at most MAX_BUCKET_PAIR_CLONES of them
+	private final Map<Long, MsCodeClone> bucketPairClones = new ConcurrentHashMap<>();
+	private final LongAdder scoredBucketPairs = new LongAdder();
+	private final LongAdder reusedScores = new LongAdder();
+	// module pairs whose vocabularies overlap less than this are skipped or scored literally, 0 compares all pairs
+	private double minVocabularyOverlap = 0.0;
+	private LowOverlap lowOverlap = LowOverlap.SKIP;
+	private ModuleVocabulary vocabulary;
+	private CodeClonesFactory literalScorer;
+	private int lowOverlapPairs;
+
+	/**
+	 * which flow pairs are compared: flows of different modules, flows of the same module or both
+	 */
+	public enum Scope {
+		INTER, INTRA, BOTH
+	}
+
+	/**
+	 * what happens to a module pair below the minimum vocabulary overlap
+	 */
+	public enum LowOverlap {
+		SKIP, LITERAL
+	}
+
+	// pairs of one module scored in parallel before they are classified
+	private static final int BLOCK_PAIRS = 1 << 14;
+	// bucket pairs scored past this within one module pair are not kept, so their flows are scored in full
+	private static final int MAX_BUCKET_PAIR_CLONES = 1 << 16;
 	
 	public CodeClonesFactory(EntitySimilarityCheckStrategy entitySimilarityChecker) {
+		this(entitySimilarityChecker, new MsCacheCodeCloneSink());
+	}
+
+	public CodeClonesFactory(EntitySimilarityCheckStrategy entitySimilarityChecker, CodeCloneSink codeCloneSink) {
+		this(entitySimilarityChecker, codeCloneSink, Scope.INTER);
+	}
+
+	public CodeClonesFactory(EntitySimilarityCheckStrategy entitySimilarityChecker, CodeCloneSink codeCloneSink, Scope scope) {
+		this(entitySimilarityChecker, codeCloneSink, scope, false);
+	}
+
+	/**
+	 * @param signatureBuckets score the flows with the same signature (see FlowSignatures) once against every other
+	 * flow and copy the scores to the rest of their bucket, within one module pair
+	 */
+	public CodeClonesFactory(EntitySimilarityCheckStrategy entitySimilarityChecker, CodeCloneSink codeCloneSink, Scope scope,
+			boolean signatureBuckets) {
 		this.entitySimilarityChecker = entitySimilarityChecker;
+		this.codeCloneSink = codeCloneSink;
+		this.scope = scope;
+		this.signatureBuckets = signatureBuckets;
+	}
+
+	/**
+	 * @param minVocabularyOverlap the share of common words (see ModuleVocabulary) two modules need to be compared
+	 * with the similarity strategy, 0 compares all pairs
+	 * @param lowOverlap skip the pairs below it or score them with the literal strategy
+	 */
+	public void setMinVocabularyOverlap(double minVocabularyOverlap, LowOverlap lowOverlap) {
+		this.minVocabularyOverlap = minVocabularyOverlap;
+		this.lowOverlap = lowOverlap;
 	}
 
     public void findCodeClones() {
+        restCallIndex = new RestCallIndex(MsCache.msFlows);
+        encodedMethods = new EncodedMethods(MsCache.msFlows);
+        if (signatureBuckets) {
+            signatures = new FlowSignatures(MsCache.msFlows);
+            System.err.println(MsCache.msFlows.size() + " flows in " + signatures.getBucketCount() + " signature buckets");
+        }
+        if (minVocabularyOverlap > 0.0 && scope != Scope.INTRA) {
+            List<List<MsFlowEntity>> moduleFlows = new ArrayList<>();
+            for (String module : MsCache.modules) {
+                moduleFlows.add(getFlowEntities(module));
+            }
+            vocabulary = new ModuleVocabulary(moduleFlows);
+        }
 
-        for (int i = 0; i < MsCache.modules.size() -1; i++) {
+        for (int i = 0; i < MsCache.modules.size(); i++) {
+            if (scope != Scope.INTER) {
+                findCodeClonesWithin(i);
+            }
+            if (scope == Scope.INTRA) {
+                continue;
+            }
             for (int j = i + 1; j < MsCache.modules.size(); j++) {
-                String iModule = MsCache.modules.get(i);
-                String jModule = MsCache.modules.get(j);
-                // get flows from i
-                List<MsFlowEntity> iFlows = getFlowEntities(iModule);
-                // get flows from j
-                List<MsFlowEntity> jFlows = getFlowEntities(jModule);
-                // compare each flow from i with each flow from j
-                for (int k = 0; k < iFlows.size(); k++) {
-                    for (int l = 0; l < jFlows.size(); l++) {
-                        MsFlowEntity kFlow = iFlows.get(k);
-                        MsFlowEntity lFlow = jFlows.get(l);
-                        MsCodeClone msCodeClone = new MsCodeClone();
-                        msCodeClone.setA(kFlow);
-                        msCodeClone.setB(lFlow);
-                        if (kFlow.getMsControllerMethod() != null && lFlow.getMsControllerMethod() != null) {
-                        	msCodeClone.setSimilarityController(compareController(msCodeClone, kFlow, lFlow));
-                        } else {
-                        	
-                        	msCodeClone.setSimilarityController(0.0);
-                        }
-                        
-                        if (kFlow.getMsControllerMethod() == null && lFlow.getMsControllerMethod() == null) {
-                        	 msCodeClone.setCtrMethodNameSimilarity(-1.0);
-                             msCodeClone.setCtrReturnTypeLiteralSimilarity(-1.0);
-                             msCodeClone.setCtrHttpMethodSimilarity(-1.0);
-                             msCodeClone.setCtrArgumentsLiteralSimilarity(-1.0);
-                        }
-                        
-                        if (kFlow.getMsServiceMethod() != null && lFlow.getMsServiceMethod() != null) {
-                            msCodeClone.setSimilarityService(compareService(msCodeClone, kFlow.getMsServiceMethod(), lFlow.getMsServiceMethod()));
-                        } else {
-                            msCodeClone.setSimilarityService(0.0);
-                        }
-                        
-                        if (kFlow.getMsServiceMethod() == null && lFlow.getMsServiceMethod() == null) {
-                            msCodeClone.setSrvMethodNameSimilarity(-1.0);
-                        	msCodeClone.setSrvReturnTypeLiteralSimilarity(-1.0);
-                        	msCodeClone.setSrvArgumentsLiteralSimilarity(-1.0);
-                        }
-                        
-                        if (kFlow.getMsRepositoryMethod() != null && lFlow.getMsRepositoryMethod() != null) {
-                            msCodeClone.setSimilarityRepository(compareRepository(msCodeClone, kFlow.getMsRepositoryMethod(), lFlow.getMsRepositoryMethod()));
-                        } else {
-                            msCodeClone.setSimilarityRepository(0.0);
-                        }
-                        
-                        if (kFlow.getMsRepositoryMethod() == null && lFlow.getMsRepositoryMethod() == null) {
-                            msCodeClone.setRepReturnTypeLiteralSimilarity(-1.0);
-                        	msCodeClone.setRepOperationTypeSimilarity(-1.0);
-                        	msCodeClone.setRepArgumentsLiteralSimilarity(-1.0);
-                        }
-                        
-                        if (kFlow.getMsRestCalls() != null && lFlow.getMsRestCalls() != null) {
-                            msCodeClone.setSimilarityRestCalls(compareRestCalls(msCodeClone, kFlow.getMsRestCalls(), lFlow.getMsRestCalls()));
-                        } else {
-                            msCodeClone.setSimilarityRestCalls(0.0);
-                        }
-                        
-                        if (kFlow.getMsRestCalls() == null && lFlow.getMsRestCalls() == null) {
-                            msCodeClone.setCalURLSimilarity(-1.0);
-                            msCodeClone.setCalReturnTypeLiteralSimilarity(-1.0);
-                            msCodeClone.setCalHttpMethodSimilarity(-1.0);
-                        }
-                        msCodeClone.setGlobalSimilarity(calculateGlobalSimilarity(msCodeClone));
-                        classifyCodeClones(msCodeClone);
-                    }
+                findCodeClonesBetween(i, j);
+            }
+        }
+        if (signatures != null) {
+            System.err.println(reusedScores.sum() + " flow pairs reused the scores of " + scoredBucketPairs.sum() + " signature bucket pairs");
+        }
+        if (vocabulary != null) {
+            int pairs = MsCache.modules.size() * (MsCache.modules.size() - 1) / 2;
+            System.err.println(lowOverlapPairs + " of " + pairs + " module pairs " + (lowOverlap == LowOverlap.SKIP ? "skipped" : "scored literally")
+                    + " below a vocabulary overlap of " + minVocabularyOverlap);
+        }
+        codeCloneSink.close();
+    }
+
+    private void findCodeClonesBetween(int i, int j) {
+        String iModule = MsCache.modules.get(i);
+        String jModule = MsCache.modules.get(j);
+        CodeClonesFactory scorer = this;
+        if (vocabulary != null && vocabulary.overlap(i, j) < minVocabularyOverlap) {
+            lowOverlapPairs++;
+            if (lowOverlap == LowOverlap.SKIP) {
+                System.err.format("skipped module pair %s - %s, vocabulary overlap %.3f%n", iModule, jModule, vocabulary.overlap(i, j));
+                return;
+            }
+            System.err.format("literal scoring of module pair %s - %s, vocabulary overlap %.3f%n", iModule, jModule, vocabulary.overlap(i, j));
+            scorer = literalScorer();
+        }
+        if (!codeCloneSink.beginModulePair(i, j)) {
+            return;
+        }
+        // get flows from i
+        List<MsFlowEntity> iFlows = getFlowEntities(iModule);
+        // get flows from j
+        List<MsFlowEntity> jFlows = getFlowEntities(jModule);
+        // compare each flow from i with each flow from j
+        for (int k = 0; k < iFlows.size(); k++) {
+            for (int l = 0; l < jFlows.size(); l++) {
+                classifyCodeClones(scorer.compareFlows(iFlows.get(k), jFlows.get(l)));
+            }
+        }
+        scorer.bucketPairClones.clear();
+        codeCloneSink.endModulePair(i, j);
+    }
+
+    /**
+     * @return the factory that scores the low overlap module pairs, sharing the flow signatures but not their scores
+     */
+    private CodeClonesFactory literalScorer() {
+        if (entitySimilarityChecker instanceof EntityLiteralSimilarityCheckStrategy) {
+            return this;
+        }
+        if (literalScorer == null) {
+            literalScorer = new CodeClonesFactory(new EntityLiteralSimilarityCheckStrategy(), codeCloneSink, scope, signatureBuckets);
+            literalScorer.signatures = signatures;
+            literalScorer.restCallIndex = restCallIndex;
+            literalScorer.encodedMethods = encodedMethods;
+        }
+        return literalScorer;
+    }
+
+    /**
+     * compares every two flows of module i, reported to the sink as module pair (i, i)
+     *
+     * the rows of the triangle are scored in parallel a block at a time, the clones are classified in row order
+     * afterwards so the sinks see the same sequence as a sequential run
+     */
+    private void findCodeClonesWithin(int i) {
+        if (!codeCloneSink.beginModulePair(i, i)) {
+            return;
+        }
+        List<MsFlowEntity> flows = getFlowEntities(MsCache.modules.get(i));
+        int k = 0;
+        while (k < flows.size() - 1) {
+            int first = k;
+            int pairs = 0;
+            while (k < flows.size() - 1 && pairs < BLOCK_PAIRS) {
+                pairs += flows.size() - 1 - k;
+                k++;
+            }
+            MsCodeClone[][] rows = IntStream.range(first, k)
+                    .parallel()
+                    .mapToObj(row -> compareRow(flows, row))
+                    .toArray(MsCodeClone[][]::new);
+            for (MsCodeClone[] row : rows) {
+                for (MsCodeClone msCodeClone : row) {
+                    classifyCodeClones(msCodeClone);
                 }
             }
         }
+        bucketPairClones.clear();
+        codeCloneSink.endModulePair(i, i);
     }
 
-    private void classifyCodeClones(MsCodeClone msCodeClone) {
+    private MsCodeClone[] compareRow(List<MsFlowEntity> flows, int k) {
+        MsCodeClone[] row = new MsCodeClone[flows.size() - 1 - k];
+        for (int l = k + 1; l < flows.size(); l++) {
+            row[l - k - 1] = compareFlows(flows.get(k), flows.get(l));
+        }
+        return row;
+    }
 
-        if (msCodeClone.getGlobalSimilarity() > 0.0) {
-            MsCache.addHighSimilar(msCodeClone);
+    /**
+     * @return the scored clone of the two flows, copied from an earlier pair with the same signatures if there is one
+     */
+    private MsCodeClone compareFlows(MsFlowEntity kFlow, MsFlowEntity lFlow) {
+        if (signatures == null || !signatures.isShared(kFlow, lFlow)) {
+            return scoreFlows(kFlow, lFlow);
+        }
+        Long key = signatures.pairKey(kFlow, lFlow);
+        MsCodeClone scored = bucketPairClones.get(key);
+        if (scored == null) {
+            scored = scoreFlows(kFlow, lFlow);
+            if (bucketPairClones.size() < MAX_BUCKET_PAIR_CLONES && bucketPairClones.putIfAbsent(key, scored) == null) {
+                scoredBucketPairs.increment();
+            }
+            return scored;
+        }
+        reusedScores.increment();
+        return scored.copyWith(kFlow, lFlow);
+    }
+
+    /**
+     * the scoring kernel shared by both scopes, only reads the two flows and the similarity strategy
+     * @return the unclassified clone of the two flows with all similarities and the global similarity set
+     */
+    private MsCodeClone scoreFlows(MsFlowEntity kFlow, MsFlowEntity lFlow) {
+        MsCodeClone msCodeClone = new MsCodeClone();
+        msCodeClone.setA(kFlow);
+        msCodeClone.setB(lFlow);
+        if (kFlow.getMsControllerMethod() != null && lFlow.getMsControllerMethod() != null) {
+        	msCodeClone.setSimilarityController(compareController(msCodeClone, kFlow, lFlow));
+        } else {
+        	
+        	msCodeClone.setSimilarityController(0.0);
+        }
+        
+        if (kFlow.getMsControllerMethod() == null && lFlow.getMsControllerMethod() == null) {
+        	 msCodeClone.setCtrMethodNameSimilarity(-1.0);
+             msCodeClone.setCtrReturnTypeLiteralSimilarity(-1.0);
+             msCodeClone.setCtrHttpMethodSimilarity(-1.0);
+             msCodeClone.setCtrArgumentsLiteralSimilarity(-1.0);
+        }
+        
+        if (kFlow.getMsServiceMethod() != null && lFlow.getMsServiceMethod() != null) {
+            msCodeClone.setSimilarityService(compareService(msCodeClone, kFlow.getMsServiceMethod(), lFlow.getMsServiceMethod()));
+        } else {
+            msCodeClone.setSimilarityService(0.0);
+        }
+        
+        if (kFlow.getMsServiceMethod() == null && lFlow.getMsServiceMethod() == null) {
+            msCodeClone.setSrvMethodNameSimilarity(-1.0);
+        	msCodeClone.setSrvReturnTypeLiteralSimilarity(-1.0);
+        	msCodeClone.setSrvArgumentsLiteralSimilarity(-1.0);
+        }
+        
+        if (kFlow.getMsRepositoryMethod() != null && lFlow.getMsRepositoryMethod() != null) {
+            msCodeClone.setSimilarityRepository(compareRepository(msCodeClone, kFlow.getMsRepositoryMethod(), lFlow.getMsRepositoryMethod()));
+        } else {
+            msCodeClone.setSimilarityRepository(0.0);
         }
-        if (msCodeClone.getSimilarityController() == 1.0) {
-            MsCache.addSameController(msCodeClone);
+        
+        if (kFlow.getMsRepositoryMethod() == null && lFlow.getMsRepositoryMethod() == null) {
+            msCodeClone.setRepReturnTypeLiteralSimilarity(-1.0);
+        	msCodeClone.setRepOperationTypeSimilarity(-1.0);
+        	msCodeClone.setRepArgumentsLiteralSimilarity(-1.0);
         }
-        if (msCodeClone.getSimilarityRepository() > 0.0) {
-            MsCache.addSameRepository(msCodeClone);
+        
+        RestCallIndex.RestCallMatch restCallMatch = restCallIndex.match(kFlow, lFlow, entitySimilarityChecker);
+        if (restCallMatch != null) {
+            msCodeClone.setSimilarityRestCalls(restCallMatch.getSimilarity());
+            msCodeClone.setCalURLSimilarity(restCallMatch.getUrlSimilarity());
+            msCodeClone.setCalReturnTypeLiteralSimilarity(restCallMatch.getReturnTypeSimilarity());
+            msCodeClone.setCalHttpMethodSimilarity(restCallMatch.getHttpMethodSimilarity());
+        } else {
+            msCodeClone.setSimilarityRestCalls(0.0);
         }
-        if (msCodeClone.getSimilarityRestCalls() >= 3.0) {
-            MsCache.addSameRestCall(msCodeClone);
+        
+        if (kFlow.getMsRestCalls() == null && lFlow.getMsRestCalls() == null) {
+            msCodeClone.setCalURLSimilarity(-1.0);
+            msCodeClone.setCalReturnTypeLiteralSimilarity(-1.0);
+            msCodeClone.setCalHttpMethodSimilarity(-1.0);
         }
+        msCodeClone.setGlobalSimilarity(calculateGlobalSimilarity(msCodeClone));
+        return msCodeClone;
+    }
+
+    private void classifyCodeClones(MsCodeClone msCodeClone) {
+
 //        if (msCodeClone.getGlobalSimilarity() < 0.8 && msCodeClone.getGlobalSimilarity() >= 0.6) {
 //            MsCache.typeC.add(msCodeClone);
 //        }
         if (msCodeClone.getGlobalSimilarity() < 0.8) {
         	msCodeClone.setTypeC(true);
-            MsCache.typeC.add(msCodeClone);
         }
         if (msCodeClone.getGlobalSimilarity() < 0.9 && msCodeClone.getGlobalSimilarity() >= 0.8) {
             msCodeClone.setTypeB(true);
-            MsCache.typeB.add(msCodeClone);
         }
 //        if (msCodeClone.getGlobalSimilarity() <= 1.0 && msCodeClone.getGlobalSimilarity() >= 0.9) {
         if (msCodeClone.getGlobalSimilarity() >= 0.9) {
             msCodeClone.setTypeA(true);
-            MsCache.typeA.add(msCodeClone);
         }
         if (msCodeClone.isTypeA()) {
             System.out.println();
         }
-        MsCache.addCodeClone(msCodeClone);
+        codeCloneSink.accept(msCodeClone);
     }
 
     private double calculateGlobalSimilarity(MsCodeClone msCodeClone) {
@@ -138,92 +331,6 @@ public class CodeClonesFactory {
                 + (msCodeClone.getSimilarityRestCalls() * 0.1);
     }
 
-    private double compareRestCalls(MsCodeClone msCodeClone, List<MsRestCall> aMsRestCalls, List<MsRestCall> bMsRestCalls) {
-        double denominator = Math.max(aMsRestCalls.size(), bMsRestCalls.size());
-        double nominator = 0.0;
-        
-        double urlSimilarity = 0;
-        double httpSimilarity = 0;
-        double returnTypeSimilarity = 0;
-        
-        for (MsRestCall a: aMsRestCalls
-             ) {
-            for (MsRestCall b: bMsRestCalls
-                 ) {
-                nominator += compareRestCall(msCodeClone, a, b);
-                
-                if (urlSimilarity < msCodeClone.getCalURLSimilarity()) {
-                	urlSimilarity = msCodeClone.getCalURLSimilarity();
-                }
-                
-                if (httpSimilarity < msCodeClone.getCalHttpMethodSimilarity()) {
-                	httpSimilarity = msCodeClone.getCalHttpMethodSimilarity();
-                }
-                
-                if (returnTypeSimilarity < msCodeClone.getCalReturnTypeLiteralSimilarity()) {
-                	returnTypeSimilarity = msCodeClone.getCalReturnTypeLiteralSimilarity();
-                }
-                
-                msCodeClone.setCalURLSimilarity(0);
-                msCodeClone.setCalReturnTypeLiteralSimilarity(0);
-                msCodeClone.setCalHttpMethodSimilarity(0);
-            }
-        }
-//        System.err.println("denominator = " + denominator);
-        
-        msCodeClone.setCalURLSimilarity(urlSimilarity);
-        msCodeClone.setCalReturnTypeLiteralSimilarity(returnTypeSimilarity);
-        msCodeClone.setCalHttpMethodSimilarity(httpSimilarity);
-        
-        if (denominator == 0.0) {
-            return 0.0;
-        }
-        
-//        msCodeClone.setCalURLSimilarity(msCodeClone.getCalURLSimilarity() / denominator);
-//        msCodeClone.setCalReturnTypeLiteralSimilarity(msCodeClone.getCalReturnTypeLiteralSimilarity() / denominator);
-//        msCodeClone.setCalHttpMethodSimilarity(msCodeClone.getCalHttpMethodSimilarity() / denominator);
-        
-        
-        
-//        
-//        System.err.println("URL = " + msCodeClone.getCalURLSimilarity());
-//        System.err.println("URL = " + msCodeClone.getCalReturnTypeLiteralSimilarity());
-//        System.err.println("URL = " + msCodeClone.getCalHttpMethodSimilarity());
-//        System.err.println("Result = " + nominator / denominator);
-        
-        return nominator / denominator;
-    }
-
-    private double compareRestCall(MsCodeClone msCodeClone, MsRestCall a, MsRestCall b) {
-    	
-//        private double calReturnTypeSemanticSimilarity = 0;
-        
-//    	System.err.println(a.getApi() + " --- " + b.getApi());
-//    	System.err.println(a.getReturnType() + " --- " + b.getReturnType());
-//    	System.err.println(a.getHttpMethod() + " --- " + b.getHttpMethod());
-    	
-        double similarity = 0.0;
-        if (a.getApi() != null && b.getApi() != null && a.getApi().replaceAll("\\s", "").toLowerCase().equals(b.getApi().replaceAll("\\s", "").toLowerCase())) {
-            similarity += 1.0;
-//            msCodeClone.setCalURLSimilarity(msCodeClone.getCalURLSimilarity() + 1.0);
-            msCodeClone.setCalURLSimilarity(1.0);
-        }
-        if (a.getReturnType() != null && b.getReturnType() != null && a.getReturnType().toLowerCase().equals(b.getReturnType().toLowerCase())) {
-            similarity += 1.0;
-//            System.err.println(a.getReturnType() + " --- " + b.getReturnType());
-            double similarityValue = this.entitySimilarityChecker.calculateSimilarity(msCodeClone.getA().getPackageName(), msCodeClone.getB().getPackageName(), a.getReturnType(), b.getReturnType());
-            msCodeClone.setCalReturnTypeLiteralSimilarity(similarityValue);
-//            msCodeClone.setCalReturnTypeLiteralSimilarity(msCodeClone.getCalReturnTypeLiteralSimilarity() + similarityValue);
-        }
-        if (a.getHttpMethod() != null && b.getHttpMethod() != null && a.getHttpMethod().equals(b.getHttpMethod())) {
-            similarity += 1.0;
-            msCodeClone.setCalHttpMethodSimilarity(1.0);
-//            msCodeClone.setCalHttpMethodSimilarity(msCodeClone.getCalHttpMethodSimilarity() + 1.0);
-        }
-//        System.err.println(similarity + "");
-        return similarity / 3.0;
-    }
-
     private double getRepositoryOperationSimilarity(MsMethod aMethod, MsMethod bMethod) {
     	
     	if (aMethod.getMethodName().equals(bMethod.getMethodName())
@@ -258,17 +365,8 @@ public class CodeClonesFactory {
         List<MsArgument> aArguments = aMethod.getMsArgumentList();
         List<MsArgument> bArguments = bMethod.getMsArgumentList();
         if (aArguments.size() != 0 && bArguments.size() != 0) {
-            double sameArguments = 0.0;
-            for (int i = 0; i < aArguments.size() - 1; i++) {
-                for (int j = i + 1; j < bArguments.size(); j++) {
-
-                    if (aArguments.get(i).getReturnType() != null
-                            && aArguments.get(i).getReturnType() != null
-                            && aArguments.get(i).getReturnType().toLowerCase().equals(bArguments.get(j).getReturnType().toLowerCase())) {
-                        sameArguments += 1.0;
-                    }
-                }
-            }
+            double sameArguments = EncodedMethods.sameLaterArguments(encodedMethods.get(aMethod).getLowerCaseArgumentTypes(),
+                    encodedMethods.get(bMethod).getLowerCaseArgumentTypes());
             double denominator = Math.max(aArguments.size(), bArguments.size());
             same += (sameArguments / denominator);
             
@@ -325,17 +423,8 @@ public class CodeClonesFactory {
         List<MsArgument> aArguments = aMethod.getMsArgumentList();
         List<MsArgument> bArguments = bMethod.getMsArgumentList();
         if (aArguments.size() != 0 && bArguments.size() != 0) {
-            double sameArguments = 0.0;
-            for (int i = 0; i < aArguments.size() - 1; i++) {
-                for (int j = i + 1; j < bArguments.size(); j++) {
-
-                    if (aArguments.get(i).getReturnType() != null
-                            && aArguments.get(i).getReturnType() != null
-                            && aArguments.get(i).getReturnType().equals(bArguments.get(j).getReturnType())) {
-                        sameArguments += 1.0;
-                    }
-                }
-            }
+            double sameArguments = EncodedMethods.sameLaterArguments(encodedMethods.get(aMethod).getArgumentTypes(),
+                    encodedMethods.get(bMethod).getArgumentTypes());
             double denominator = Math.max(aArguments.size(), bArguments.size());
             same += (sameArguments / denominator);
         }
@@ -407,20 +496,11 @@ public class CodeClonesFactory {
         
         msCodeClone.setCtrReturnTypeLiteralSimilarity(this.entitySimilarityChecker.calculateSimilarity(msCodeClone.getA().getPackageName(), msCodeClone.getB().getPackageName(), aCtrl.getReturnType(), bCtrl.getReturnType())); //
 
-        double annotationsSimilarity = 0;
         int maxNumberAnnotations = Math.max(aCtrl.getMsAnnotations().size(), bCtrl.getMsAnnotations().size());
-        
-        for (MsAnnotation aA: aCtrl.getMsAnnotations()
-             ) {
-            for (MsAnnotation bA: bCtrl.getMsAnnotations()
-                 ) {
-                if (aA.getAnnotationName().toLowerCase().equals(bA.getAnnotationName().toLowerCase())) {
-                    if (aCtrl.getReturnType().equals(bCtrl.getReturnType())) {
-                        same += 1.0;
-                    }
-                    annotationsSimilarity += 1;
-                }
-            }
+        // pairs of annotations with the same name
+        double annotationsSimilarity = EncodedMethods.sameAnnotations(encodedMethods.get(aCtrl), encodedMethods.get(bCtrl));
+        if (aCtrl.getReturnType().equals(bCtrl.getReturnType())) {
+            same += annotationsSimilarity;
         }
         
         msCodeClone.setCtrHttpMethodSimilarity(annotationsSimilarity/maxNumberAnnotations); //
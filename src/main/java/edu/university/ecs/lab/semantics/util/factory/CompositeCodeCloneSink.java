@@ -0,0 +1,45 @@
+package edu.university.ecs.lab.semantics.util.factory;
+
+import edu.university.ecs.lab.semantics.entity.MsCodeClone;
+
+/**
+ * passes every call on to all of its sinks in order, a module pair is scored if any of them asks for it
+ */
+public class CompositeCodeCloneSink implements CodeCloneSink {
+
+    private final CodeCloneSink[] sinks;
+
+    public CompositeCodeCloneSink(CodeCloneSink... sinks) {
+        this.sinks = sinks;
+    }
+
+    @Override
+    public boolean beginModulePair(int i, int j) {
+        boolean score = false;
+        for (CodeCloneSink sink : sinks) {
+            score |= sink.beginModulePair(i, j);
+        }
+        return score;
+    }
+
+    @Override
+    public void accept(MsCodeClone msCodeClone) {
+        for (CodeCloneSink sink : sinks) {
+            sink.accept(msCodeClone);
+        }
+    }
+
+    @Override
+    public void endModulePair(int i, int j) {
+        for (CodeCloneSink sink : sinks) {
+            sink.endModulePair(i, j);
+        }
+    }
+
+    @Override
+    public void close() {
+        for (CodeCloneSink sink : sinks) {
+            sink.close();
+        }
+    }
+}
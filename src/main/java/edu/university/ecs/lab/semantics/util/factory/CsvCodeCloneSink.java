@@ -0,0 +1,66 @@
+package edu.university.ecs.lab.semantics.util.factory;
+
+import edu.university.ecs.lab.semantics.entity.MsCodeClone;
+import edu.university.ecs.lab.semantics.util.file.CsvWriter;
+
+import java.io.IOException;
+
+/**
+ * writes per-cfg-clones.csv (type A and B) and per-cfg-non-clones.csv (type C) while the clones are found,
+ * one row per clone, nothing is kept in memory
+ */
+public class CsvCodeCloneSink implements CodeCloneSink {
+
+    private CsvWriter clones;
+    private CsvWriter nonClones;
+
+    public CsvCodeCloneSink(String path) {
+        try {
+            clones = new CsvWriter(path, "per-cfg-clones");
+            clones.header(ModuleCloneFactory.CLONES_ATTRIBUTES_HEADER);
+            nonClones = new CsvWriter(path, "per-cfg-non-clones");
+            nonClones.header(ModuleCloneFactory.CLONES_ATTRIBUTES_HEADER);
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    @Override
+    public void accept(MsCodeClone msCodeClone) {
+        if (clones == null) {
+            return;
+        }
+        try {
+            if (msCodeClone.isTypeA() || msCodeClone.isTypeB()) {
+                ModuleCloneFactory.writeClonesAttributes(clones, msCodeClone);
+            }
+            if (msCodeClone.isTypeC()) {
+                ModuleCloneFactory.writeClonesAttributes(nonClones, msCodeClone);
+            }
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            if (clones != null) {
+                clones.close();
+            }
+            if (nonClones != null) {
+                nonClones.close();
+            }
+        } catch (IOException e) {
+            System.err.format("IOException: %s%n", e);
+        }
+        clones = null;
+        nonClones = null;
+    }
+
+    // stops writing after the first error instead of reporting it for every row
+    private void fail(IOException e) {
+        System.err.format("IOException: %s%n", e);
+        close();
+    }
+}
@@ -0,0 +1,150 @@
+package edu.university.ecs.lab.semantics.util.factory;
+
+import edu.university.ecs.lab.semantics.entity.MsFlowEntity;
+import edu.university.ecs.lab.semantics.entity.graph.MsAnnotation;
+import edu.university.ecs.lab.semantics.entity.graph.MsArgument;
+import edu.university.ecs.lab.semantics.entity.graph.MsMethod;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * the annotations and argument types of the controller, service and repository methods of all flows, encoded once
+ * as numbers from small dictionaries so the clone scoring compares ints instead of strings
+ *
+ * annotation names (in lower case) are a bitmask while the dictionary has at most 64 names and a method has no name
+ * twice, otherwise a sorted multiset. argument types are kept in argument order, as written and in lower case
+ */
+public class EncodedMethods {
+
+    private final Map<String, Integer> annotationNames = new HashMap<>();
+    private final Map<String, Integer> types = new HashMap<>();
+    private final Map<MsMethod, EncodedMethod> methods = new IdentityHashMap<>();
+
+    public EncodedMethods(List<MsFlowEntity> flows) {
+        for (MsFlowEntity flow : flows) {
+            encode(flow.getMsControllerMethod());
+            encode(flow.getMsServiceMethod());
+            encode(flow.getMsRepositoryMethod());
+        }
+    }
+
+    public EncodedMethod get(MsMethod method) {
+        return methods.get(method);
+    }
+
+    /**
+     * @return the number of annotation pairs of the two methods with the same name, ignoring case
+     */
+    public static int sameAnnotations(EncodedMethod a, EncodedMethod b) {
+        if (a.distinctAnnotations && b.distinctAnnotations) {
+            return Long.bitCount(a.annotationMask & b.annotationMask);
+        }
+        int same = 0;
+        for (int k = 0, l = 0; k < a.annotations.length && l < b.annotations.length; ) {
+            if (a.annotations[k] < b.annotations[l]) {
+                k++;
+            } else if (a.annotations[k] > b.annotations[l]) {
+                l++;
+            } else {
+                // every equal pair counts, n equal names on one side and m on the other are n * m pairs
+                int kEnd = k;
+                while (kEnd < a.annotations.length && a.annotations[kEnd] == a.annotations[k]) {
+                    kEnd++;
+                }
+                int lEnd = l;
+                while (lEnd < b.annotations.length && b.annotations[lEnd] == b.annotations[l]) {
+                    lEnd++;
+                }
+                same += (kEnd - k) * (lEnd - l);
+                k = kEnd;
+                l = lEnd;
+            }
+        }
+        return same;
+    }
+
+    /**
+     * @param a the argument types of the first method, -1 for unknown types
+     * @param b the argument types of the second method
+     * @return the number of argument pairs i, j with i < j and the same type, as the service and repository scores
+     * have always counted them
+     */
+    public static int sameLaterArguments(int[] a, int[] b) {
+        int same = 0;
+        for (int i = 0; i < a.length - 1; i++) {
+            if (a[i] < 0) {
+                continue;
+            }
+            for (int j = i + 1; j < b.length; j++) {
+                if (a[i] == b[j]) {
+                    same++;
+                }
+            }
+        }
+        return same;
+    }
+
+    private void encode(MsMethod method) {
+        if (method == null || methods.containsKey(method)) {
+            return;
+        }
+        EncodedMethod encoded = new EncodedMethod();
+        List<MsAnnotation> annotations = method.getMsAnnotations();
+        encoded.annotations = new int[annotations == null ? 0 : annotations.size()];
+        long mask = 0L;
+        boolean distinct = true;
+        for (int k = 0; k < encoded.annotations.length; k++) {
+            int id = id(annotationNames, annotations.get(k).getAnnotationName().toLowerCase());
+            encoded.annotations[k] = id;
+            if (id >= Long.SIZE || (mask & 1L << id) != 0) {
+                distinct = false;
+            } else {
+                mask |= 1L << id;
+            }
+        }
+        Arrays.sort(encoded.annotations);
+        encoded.annotationMask = mask;
+        encoded.distinctAnnotations = distinct;
+        List<MsArgument> arguments = method.getMsArgumentList();
+        int size = arguments == null ? 0 : arguments.size();
+        encoded.argumentTypes = new int[size];
+        encoded.lowerCaseArgumentTypes = new int[size];
+        for (int k = 0; k < size; k++) {
+            String type = arguments.get(k).getReturnType();
+            encoded.argumentTypes[k] = type == null ? -1 : id(types, type);
+            encoded.lowerCaseArgumentTypes[k] = type == null ? -1 : id(types, type.toLowerCase());
+        }
+        methods.put(method, encoded);
+    }
+
+    private static int id(Map<String, Integer> dictionary, String key) {
+        Integer id = dictionary.get(key);
+        if (id == null) {
+            id = dictionary.size();
+            dictionary.put(key, id);
+        }
+        return id;
+    }
+
+    public static final class EncodedMethod {
+
+        private long annotationMask;
+        // false if the names do not fit into the mask or a name appears twice, the sorted ids are compared then
+        private boolean distinctAnnotations;
+        private int[] annotations;
+        private int[] argumentTypes;
+        private int[] lowerCaseArgumentTypes;
+
+        public int[] getArgumentTypes() {
+            return argumentTypes;
+        }
+
+        public int[] getLowerCaseArgumentTypes() {
+            return lowerCaseArgumentTypes;
+        }
+    }
+}
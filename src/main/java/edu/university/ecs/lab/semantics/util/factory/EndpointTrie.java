@@ -0,0 +1,188 @@
+package edu.university.ecs.lab.semantics.util.factory;
+
+import edu.university.ecs.lab.semantics.entity.MsFlowEntity;
+import edu.university.ecs.lab.semantics.entity.graph.MsMethod;
+import edu.university.ecs.lab.semantics.entity.graph.MsRestCall;
+import edu.university.ecs.lab.semantics.util.constructs.UrlTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * the endpoints of the system in a trie of path segments, built from the request mappings of the controller methods
+ *
+ * path variables are one wildcard child per node, a rest call URL is walked segment by segment, a literal segment
+ * before the wildcard. when the literal branch has no endpoint for the rest of the URL the walk backs up and takes the
+ * wildcard, so a lookup visits every trie path matching the URL. that is the length of the URL for most systems and
+ * grows with the number of mappings that mix literals and variables at the same positions.
+ * a path mapped by several flows (the same endpoint in more than one service) is resolved with the host of the URL,
+ * the flow whose controller path contains it as a directory, and to no flow if that does not single one out
+ */
+public class EndpointTrie {
+
+    // the walk stops at a path that cannot be resolved to one flow
+    private static final int AMBIGUOUS = -2;
+
+    private final Node root = new Node();
+    private int endpoints;
+
+    public EndpointTrie(List<MsFlowEntity> flows) {
+        for (MsFlowEntity flow : flows) {
+            MsMethod method = flow.getMsControllerMethod();
+            if (method == null || method.getMappingPath() == null) {
+                continue;
+            }
+            Node node = root;
+            for (String segment : UrlTemplate.pathSegments(method.getMappingPath())) {
+                node = node.child(segment);
+            }
+            node.flows.add(flow.getId());
+            node.httpMethods.add(method.getMapping());
+            node.controllerPaths.add(flow.getMsController() == null ? "" : flow.getMsController().getMsId().getPath());
+            endpoints++;
+        }
+    }
+
+    public int getEndpoints() {
+        return endpoints;
+    }
+
+    /**
+     * sets the target flow of every rest call
+     * @return the number of rest calls resolved to a flow
+     */
+    public int resolve(List<MsRestCall> restCalls) {
+        int resolved = 0;
+        for (MsRestCall restCall : restCalls) {
+            restCall.setTargetFlowId(resolve(restCall));
+            if (restCall.getTargetFlowId() >= 0) {
+                resolved++;
+            }
+        }
+        return resolved;
+    }
+
+    /**
+     * a URL without any literal path segment (e.g. one held in a single variable) is only resolved to a flow of the
+     * service named by its host
+     * @return the id of the flow whose endpoint the call requests, -1 if there is none or more than one
+     */
+    public int resolve(MsRestCall restCall) {
+        String url = UrlTemplate.fromExpression(restCall.getApi());
+        if (url == null) {
+            return -1;
+        }
+        List<String> segments = UrlTemplate.pathSegments(url);
+        String host = UrlTemplate.host(url);
+        boolean literal = segments.stream().anyMatch(segment -> !segment.equals(UrlTemplate.VARIABLE));
+        if (!literal && host == null) {
+            return -1;
+        }
+        int flow = find(root, segments, 0, getHttpMethod(restCall), host, !literal);
+        return flow < 0 ? -1 : flow;
+    }
+
+    private int find(Node node, List<String> segments, int k, String httpMethod, String host, boolean hostRequired) {
+        if (k == segments.size()) {
+            return node.flow(httpMethod, host, hostRequired);
+        }
+        String segment = segments.get(k);
+        if (!segment.equals(UrlTemplate.VARIABLE) && node.children != null) {
+            Node child = node.children.get(segment);
+            if (child != null) {
+                int flow = find(child, segments, k + 1, httpMethod, host, hostRequired);
+                if (flow != -1) {
+                    return flow;
+                }
+            }
+        }
+        return node.variable == null ? -1 : find(node.variable, segments, k + 1, httpMethod, host, hostRequired);
+    }
+
+    /**
+     * @return the HTTP method of an exchange call, otherwise the one of the RestTemplate method recorded when the call
+     * was parsed (getForObject is GET), null if it is not known
+     */
+    static String getHttpMethod(MsRestCall restCall) {
+        if (restCall.getHttpMethod() != null) {
+            return restCall.getHttpMethod();
+        }
+        String name = restCall.getCalledMethodName();
+        if (name == null) {
+            return null;
+        }
+        if (name.startsWith("getFor")) {
+            return "GET";
+        }
+        if (name.startsWith("postFor")) {
+            return "POST";
+        }
+        if (name.startsWith("patchFor")) {
+            return "PATCH";
+        }
+        if (name.equals("put")) {
+            return "PUT";
+        }
+        if (name.equals("delete")) {
+            return "DELETE";
+        }
+        return null;
+    }
+
+    private static final class Node {
+
+        private Map<String, Node> children;
+        private Node variable;
+        // the flows mapped to this path, their HTTP methods (null for any method) and controller paths
+        private final List<Integer> flows = new ArrayList<>(1);
+        private final List<String> httpMethods = new ArrayList<>(1);
+        private final List<String> controllerPaths = new ArrayList<>(1);
+
+        private Node child(String segment) {
+            if (segment.equals(UrlTemplate.VARIABLE)) {
+                if (variable == null) {
+                    variable = new Node();
+                }
+                return variable;
+            }
+            if (children == null) {
+                children = new HashMap<>();
+            }
+            return children.computeIfAbsent(segment, s -> new Node());
+        }
+
+        /**
+         * @return the one flow of the path for the HTTP method, narrowed down by the host if there are several,
+         * -1 if there is none and AMBIGUOUS if there is more than one
+         */
+        private int flow(String httpMethod, String host, boolean hostRequired) {
+            String directory = host == null ? null : "/" + host + "/";
+            int matches = 0;
+            int flow = -1;
+            int hostMatches = 0;
+            int hostFlow = -1;
+            for (int k = 0; k < flows.size(); k++) {
+                if (httpMethod == null || httpMethods.get(k) == null || httpMethods.get(k).equals(httpMethod)) {
+                    matches++;
+                    flow = flows.get(k);
+                    if (directory != null && controllerPaths.get(k).contains(directory)) {
+                        hostMatches++;
+                        hostFlow = flows.get(k);
+                    }
+                }
+            }
+            if (hostMatches == 1) {
+                return hostFlow;
+            }
+            if (hostRequired) {
+                return hostMatches == 0 ? -1 : AMBIGUOUS;
+            }
+            if (matches <= 1) {
+                return flow;
+            }
+            return AMBIGUOUS;
+        }
+    }
+}
@@ -71,6 +71,9 @@ public class FlowBuilder {
 //            	System.err.println(msFlowEntity.getMsController().getPackageName());
 //            }
         }
+        for (int i = 0; i < msFlowEntities.size(); i++) {
+            msFlowEntities.get(i).setId(i);
+        }
         MsCache.msFlows = msFlowEntities;
     }
 
@@ -0,0 +1,112 @@
+package edu.university.ecs.lab.semantics.util.factory;
+
+import edu.university.ecs.lab.semantics.entity.MsFlowEntity;
+import edu.university.ecs.lab.semantics.entity.graph.MsAnnotation;
+import edu.university.ecs.lab.semantics.entity.graph.MsArgument;
+import edu.university.ecs.lab.semantics.entity.graph.MsMethod;
+import edu.university.ecs.lab.semantics.entity.graph.MsRestCall;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * numbers the flows by their canonical signature, everything the clone scoring reads from a flow: the package prefix,
+ * the controller, service and repository method (name, return type, arguments, annotations) and the rest calls
+ *
+ * flows with the same signature fall into the same bucket and score the same against any other flow, so a pair of
+ * buckets only has to be scored once
+ */
+public class FlowSignatures {
+
+    private static final char SEPARATOR = '\u0000';
+    private static final char NULL = '\u0001';
+
+    // bucket of each flow, by flow id
+    private final int[] buckets;
+    private final int[] bucketSizes;
+
+    public FlowSignatures(List<MsFlowEntity> flows) {
+        this.buckets = new int[flows.size()];
+        Map<String, Integer> numbers = new HashMap<>();
+        StringBuilder sb = new StringBuilder();
+        for (MsFlowEntity flow : flows) {
+            sb.setLength(0);
+            appendSignature(sb, flow);
+            Integer bucket = numbers.get(sb.toString());
+            if (bucket == null) {
+                bucket = numbers.size();
+                numbers.put(sb.toString(), bucket);
+            }
+            buckets[flow.getId()] = bucket;
+        }
+        this.bucketSizes = new int[numbers.size()];
+        for (int bucket : buckets) {
+            bucketSizes[bucket]++;
+        }
+    }
+
+    public int getBucketCount() {
+        return bucketSizes.length;
+    }
+
+    /**
+     * @return true if one of the two flows shares its bucket with another flow, only then can the score be reused
+     */
+    public boolean isShared(MsFlowEntity a, MsFlowEntity b) {
+        return bucketSizes[buckets[a.getId()]] > 1 || bucketSizes[buckets[b.getId()]] > 1;
+    }
+
+    /**
+     * @return the ordered bucket pair of the two flows, the scoring is not symmetric
+     */
+    public long pairKey(MsFlowEntity a, MsFlowEntity b) {
+        return (long) buckets[a.getId()] * bucketSizes.length + buckets[b.getId()];
+    }
+
+    private static void appendSignature(StringBuilder sb, MsFlowEntity flow) {
+        append(sb, flow.getPackageName());
+        appendMethod(sb, flow.getMsControllerMethod());
+        appendMethod(sb, flow.getMsServiceMethod());
+        appendMethod(sb, flow.getMsRepositoryMethod());
+        List<MsRestCall> restCalls = flow.getMsRestCalls();
+        if (restCalls == null) {
+            sb.append(NULL);
+            return;
+        }
+        sb.append(restCalls.size()).append(SEPARATOR);
+        for (MsRestCall restCall : restCalls) {
+            append(sb, restCall.getApi());
+            append(sb, restCall.getHttpMethod());
+            append(sb, restCall.getReturnType());
+        }
+    }
+
+    private static void appendMethod(StringBuilder sb, MsMethod method) {
+        if (method == null) {
+            sb.append(NULL);
+            return;
+        }
+        append(sb, method.getMethodName());
+        append(sb, method.getReturnType());
+        List<MsArgument> arguments = method.getMsArgumentList();
+        sb.append(arguments == null ? -1 : arguments.size()).append(SEPARATOR);
+        for (int k = 0; arguments != null && k < arguments.size(); k++) {
+            append(sb, arguments.get(k).getReturnType());
+        }
+        List<MsAnnotation> annotations = method.getMsAnnotations();
+        sb.append(annotations == null ? -1 : annotations.size()).append(SEPARATOR);
+        for (int k = 0; annotations != null && k < annotations.size(); k++) {
+            append(sb, annotations.get(k).getAnnotationName());
+        }
+    }
+
+    private static void append(StringBuilder sb, String value) {
+        if (value == null) {
+            sb.append(NULL);
+        } else {
+            sb.append(value);
+        }
+        sb.append(SEPARATOR);
+    }
+}
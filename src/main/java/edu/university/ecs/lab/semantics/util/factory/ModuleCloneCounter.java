@@ -0,0 +1,263 @@
+package edu.university.ecs.lab.semantics.util.factory;
+
+import edu.university.ecs.lab.semantics.entity.MsCodeClone;
+import edu.university.ecs.lab.semantics.entity.MsFlowEntity;
+import edu.university.ecs.lab.semantics.entity.quantification.ModuleClone;
+import edu.university.ecs.lab.semantics.entity.quantification.ModuleClonePair;
+import edu.university.ecs.lab.semantics.util.CodeCloneStore;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * the per-module and per-module-pair clone figures, updated with every type A or B clone as it is classified
+ *
+ * a flow belongs to every module its controller path contains. per-module-clones counts the flows of a module whose
+ * controller method ("path.method") is in any clone, module-pair-clones counts the flows of module a whose controller
+ * class and method are the a side of a clone between the two modules. both keys are numbered once per flow, so a clone
+ * only sets bits and bumps the counters of the flows sharing its keys
+ */
+public class ModuleCloneCounter {
+
+    private final List<String> modules;
+    private final List<MsFlowEntity> flows;
+    private final CodeCloneStore store;
+    private final int moduleCount;
+    // modules of each flow, by flow id
+    private final int[][] flowModules;
+    private final int[][] moduleFlows;
+    // "path.method" and "class method" numbers of each flow, -1 without controller
+    private final int[] methodKeys;
+    private final int[] classMethodKeys;
+    private final int[][] flowsByMethodKey;
+    private final int[][] flowsByClassMethodKey;
+
+    private final BitSet clonedMethodKeys = new BitSet();
+    private final int[] clonedFlows;
+    // indexed by min * moduleCount + max of the two modules
+    private final BitSet[] pairClassMethodKeys;
+    private final CodeCloneStore.Subset[] pairClones;
+    // indexed by a * moduleCount + b, flows of module a that are the a side of a clone with b
+    private final int[] pairClonedFlows;
+
+    public ModuleCloneCounter(List<String> modules, List<MsFlowEntity> flows, CodeCloneStore store) {
+        this.modules = modules;
+        this.flows = flows;
+        this.store = store;
+        this.moduleCount = modules.size();
+        this.flowModules = new int[flows.size()][];
+        this.methodKeys = new int[flows.size()];
+        this.classMethodKeys = new int[flows.size()];
+        Map<String, Integer> methodKeyNumbers = new HashMap<>();
+        Map<String, Integer> classMethodKeyNumbers = new HashMap<>();
+        List<List<Integer>> moduleFlowLists = new ArrayList<>();
+        for (int m = 0; m < moduleCount; m++) {
+            moduleFlowLists.add(new ArrayList<>());
+        }
+        for (MsFlowEntity flow : flows) {
+            int id = flow.getId();
+            String path = flow.getMsController() == null ? null : flow.getMsController().getMsId().getPath();
+            List<Integer> memberOf = new ArrayList<>(1);
+            for (int m = 0; path != null && m < moduleCount; m++) {
+                if (path.contains(modules.get(m))) {
+                    memberOf.add(m);
+                    moduleFlowLists.get(m).add(id);
+                }
+            }
+            flowModules[id] = toArray(memberOf);
+            if (path == null || flow.getMsControllerMethod() == null) {
+                methodKeys[id] = -1;
+                classMethodKeys[id] = -1;
+                continue;
+            }
+            String methodName = flow.getMsControllerMethod().getMethodName();
+            methodKeys[id] = number(methodKeyNumbers, path + "." + methodName);
+            classMethodKeys[id] = number(classMethodKeyNumbers, flow.getMsController().getClassName() + "\u0000" + methodName);
+        }
+        this.moduleFlows = new int[moduleCount][];
+        for (int m = 0; m < moduleCount; m++) {
+            moduleFlows[m] = toArray(moduleFlowLists.get(m));
+        }
+        this.flowsByMethodKey = invert(methodKeys, methodKeyNumbers.size());
+        this.flowsByClassMethodKey = invert(classMethodKeys, classMethodKeyNumbers.size());
+        this.clonedFlows = new int[moduleCount];
+        this.pairClassMethodKeys = new BitSet[moduleCount * moduleCount];
+        this.pairClones = new CodeCloneStore.Subset[moduleCount * moduleCount];
+        this.pairClonedFlows = new int[moduleCount * moduleCount];
+    }
+
+    /**
+     * counts a type A or B clone
+     * @param index the index of the clone in the store
+     */
+    public void add(int index, MsCodeClone msCodeClone) {
+        int a = msCodeClone.getAId();
+        int b = msCodeClone.getBId();
+        if (a < 0 || b < 0) {
+            return;
+        }
+        markMethodKey(methodKeys[a]);
+        markMethodKey(methodKeys[b]);
+        for (int p : flowModules[a]) {
+            for (int q : flowModules[b]) {
+                if (modules.get(p).equals(modules.get(q))) {
+                    continue;
+                }
+                int pair = Math.min(p, q) * moduleCount + Math.max(p, q);
+                if (pairClones[pair] == null) {
+                    pairClassMethodKeys[pair] = new BitSet();
+                    pairClones[pair] = store.subset();
+                }
+                CodeCloneStore.Subset clones = pairClones[pair];
+                // a flow can be in more than one module, the clone is added to the pair once
+                if (clones.isEmpty() || clones.indexAt(clones.size() - 1) != index) {
+                    clones.addIndex(index);
+                }
+                markClassMethodKey(pair, p, q, classMethodKeys[a]);
+            }
+        }
+    }
+
+    /**
+     * @return the indexes of the modules the flow belongs to
+     */
+    public int[] getModules(int flowId) {
+        return flowModules[flowId];
+    }
+
+    /**
+     * @return the per-module figures, in the order of the modules
+     */
+    public List<ModuleClone> getModuleClones() {
+        List<ModuleClone> moduleClones = new ArrayList<>();
+        for (int i = 0; i < moduleCount; i++) {
+            ModuleClone moduleClone = new ModuleClone();
+            moduleClone.setModuleId(i + 1);
+            moduleClone.setModuleName(modules.get(i));
+            moduleClone.setClonedCfg(clonedFlows[i]);
+            moduleClone.setCfgNr(moduleFlows[i].length);
+            moduleClone.setPercentageClones(((double) clonedFlows[i] / (double) moduleFlows[i].length * 100));
+            moduleClones.add(moduleClone);
+        }
+        return moduleClones;
+    }
+
+    /**
+     * @return the row-major module x module matrix of clone percentages, entry a * modules + b is the percentage of
+     * the flows of module a that are the a side of a clone with module b, 0 on the diagonal and for modules without flows
+     */
+    public double[] getClonePercentages() {
+        double[] percentages = new double[moduleCount * moduleCount];
+        for (int i = 0; i < moduleCount; i++) {
+            for (int j = 0; j < moduleCount; j++) {
+                int same = pairClonedFlows[i * moduleCount + j];
+                if (same > 0 && !modules.get(i).equals(modules.get(j))) {
+                    percentages[i * moduleCount + j] = ((double) same / (double) moduleFlows[i].length) * 100;
+                }
+            }
+        }
+        return percentages;
+    }
+
+    /**
+     * @return the ordered module pairs with a clone percentage above 0
+     */
+    public List<ModuleClonePair> getModuleClonePairs() {
+        double[] percentages = getClonePercentages();
+        List<ModuleClonePair> moduleClonePairs = new ArrayList<>();
+        for (int i = 0; i < moduleCount; i++) {
+            for (int j = 0; j < moduleCount; j++) {
+                double percentage = percentages[i * moduleCount + j];
+                if (percentage == 0.0) {
+                    continue;
+                }
+                ModuleClonePair moduleClonePair = new ModuleClonePair();
+                moduleClonePair.setModuleA(modules.get(i));
+                moduleClonePair.setModuleB(modules.get(j));
+                moduleClonePair.setModuleAFlows(flows(moduleFlows[i]));
+                moduleClonePair.setModuleBFlows(flows(moduleFlows[j]));
+                moduleClonePair.setCodeClones(pairClones[Math.min(i, j) * moduleCount + Math.max(i, j)]);
+                moduleClonePair.setPercentClonesModuleA(percentage);
+                moduleClonePairs.add(moduleClonePair);
+            }
+        }
+        return moduleClonePairs;
+    }
+
+    private void markMethodKey(int key) {
+        if (key < 0 || clonedMethodKeys.get(key)) {
+            return;
+        }
+        clonedMethodKeys.set(key);
+        for (int flow : flowsByMethodKey[key]) {
+            for (int m : flowModules[flow]) {
+                clonedFlows[m]++;
+            }
+        }
+    }
+
+    private void markClassMethodKey(int pair, int p, int q, int key) {
+        if (key < 0 || pairClassMethodKeys[pair].get(key)) {
+            return;
+        }
+        pairClassMethodKeys[pair].set(key);
+        for (int flow : flowsByClassMethodKey[key]) {
+            for (int m : flowModules[flow]) {
+                if (m == p) {
+                    pairClonedFlows[p * moduleCount + q]++;
+                }
+                if (m == q) {
+                    pairClonedFlows[q * moduleCount + p]++;
+                }
+            }
+        }
+    }
+
+    private List<MsFlowEntity> flows(int[] ids) {
+        List<MsFlowEntity> list = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            list.add(flows.get(id));
+        }
+        return list;
+    }
+
+    private static int number(Map<String, Integer> numbers, String key) {
+        Integer number = numbers.get(key);
+        if (number == null) {
+            number = numbers.size();
+            numbers.put(key, number);
+        }
+        return number;
+    }
+
+    private static int[][] invert(int[] keys, int keyCount) {
+        int[] counts = new int[keyCount];
+        for (int key : keys) {
+            if (key >= 0) {
+                counts[key]++;
+            }
+        }
+        int[][] inverted = new int[keyCount][];
+        for (int key = 0; key < keyCount; key++) {
+            inverted[key] = new int[counts[key]];
+            counts[key] = 0;
+        }
+        for (int id = 0; id < keys.length; id++) {
+            if (keys[id] >= 0) {
+                inverted[keys[id]][counts[keys[id]]++] = id;
+            }
+        }
+        return inverted;
+    }
+
+    private static int[] toArray(List<Integer> list) {
+        int[] array = new int[list.size()];
+        for (int k = 0; k < array.length; k++) {
+            array[k] = list.get(k);
+        }
+        return array;
+    }
+}
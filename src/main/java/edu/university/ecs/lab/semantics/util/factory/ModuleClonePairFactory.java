@@ -3,136 +3,75 @@ package edu.university.ecs.lab.semantics.util.factory;
 import org.checkerframework.checker.units.qual.A;
 
 import edu.university.ecs.lab.semantics.SemanticAnalysisCommand;
-import edu.university.ecs.lab.semantics.entity.MsCodeClone;
-import edu.university.ecs.lab.semantics.entity.MsFlowEntity;
 import edu.university.ecs.lab.semantics.entity.quantification.ModuleClonePair;
 import edu.university.ecs.lab.semantics.util.MsCache;
-import edu.university.ecs.lab.semantics.util.entitysimilarity.strategies.EntityLiteralSimilarityCheckStrategy;
-import edu.university.ecs.lab.semantics.util.entitysimilarity.strategies.EntitySematicSimilarityCheckStrategy;
+import edu.university.ecs.lab.semantics.util.file.CsvWriter;
+import edu.university.ecs.lab.semantics.util.file.OutputFiles;
 
-import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.PrintWriter;
-import java.util.ArrayList;
+import java.io.IOException;
+import java.io.Writer;
 import java.util.List;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.util.concurrent.CompletableFuture;
 
 public class ModuleClonePairFactory {
 
-    private CodeClonesFactory codeClonesFactory;
-
-    public ModuleClonePairFactory(){
-        codeClonesFactory = new CodeClonesFactory(new EntityLiteralSimilarityCheckStrategy());
-//    	codeClonesFactory = new CodeClonesFactory(new EntitySematicSimilarityCheckStrategy(false));
-        
-    }
-
+    /**
+     * writes module-pair-clones.txt and the matrix side by side on the I/O executor, both only read the counter
+     */
     public void printModuleClonePairs(){
         List<ModuleClonePair> moduleClonePairs = createModuleClonePairs();
-        File csvOutputFile = new File(SemanticAnalysisCommand.cachePath +"/module-pair-clones.txt");
-        try (PrintWriter pw = new PrintWriter(csvOutputFile)) {
-            moduleClonePairs.stream()
-                    .map(this::convertToString)
-                    .forEach(pw::println);
-        } catch (FileNotFoundException e) {
-            e.printStackTrace();
-        }
-
+        CompletableFuture<Void> pairs = CompletableFuture.runAsync(() -> writeModuleClonePairs(moduleClonePairs),
+                OutputFiles.executor());
+        printModuleClonePairMatrix();
+        pairs.join();
     }
 
-    public String convertToString(ModuleClonePair pair) {
-        return pair.toString();
+    private void writeModuleClonePairs(List<ModuleClonePair> moduleClonePairs) {
+        try (Writer writer = OutputFiles.newWriter(SemanticAnalysisCommand.cachePath, "module-pair-clones.txt")) {
+            for (ModuleClonePair pair : moduleClonePairs) {
+                writer.write(convertToString(pair));
+                writer.write(System.lineSeparator());
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
     }
 
     /**
-     * compare ever module with the other
-     * look at how similar those two modules are
+     * writes module-pair-clones-matrix.csv, one row and one column per module, a cell holds the percentage of the
+     * flows of the row module that are cloned in the column module, including the pairs at 0 that module-pair-clones.txt leaves out
      */
-    public List<ModuleClonePair> createModuleClonePairs() {
-        List<ModuleClonePair> moduleClonePairs = new ArrayList<>();
-        for (int i = 0; i < MsCache.modules.size(); i++) {
-            for (int j = 0; j < MsCache.modules.size(); j++) {
-                String iModule = MsCache.modules.get(i);
-                String jModule = MsCache.modules.get(j);
-                if (!iModule.equals(jModule)) {
-                    ModuleClonePair moduleClonePair = new ModuleClonePair();
-                    moduleClonePair.setModuleA(iModule);
-                    moduleClonePair.setModuleB(jModule);
-                    moduleClonePair.setModuleAFlows(codeClonesFactory.getFlowEntities(iModule));
-                    moduleClonePair.setModuleBFlows(codeClonesFactory.getFlowEntities(jModule));
-                    moduleClonePair.setCodeClones(getAssociatedCodeClones(iModule, jModule));
-                    moduleClonePair.setPercentClonesModuleA(flowRepresentation(moduleClonePair.getModuleAFlows(), moduleClonePair.getCodeClones()));
-                    moduleClonePairs.add(moduleClonePair);
+    public void printModuleClonePairMatrix() {
+        List<String> modules = MsCache.modules;
+        double[] percentages = MsCache.getModuleCloneCounter().getClonePercentages();
+        try (CsvWriter csv = new CsvWriter(SemanticAnalysisCommand.cachePath, "module-pair-clones-matrix")) {
+            csv.cell("module");
+            for (String module : modules) {
+                csv.cell(module);
+            }
+            csv.endRow();
+            for (int i = 0; i < modules.size(); i++) {
+                csv.cell(modules.get(i));
+                for (int j = 0; j < modules.size(); j++) {
+                    csv.cell(percentages[i * modules.size() + j]);
                 }
+                csv.endRow();
             }
+        } catch (IOException e) {
+            e.printStackTrace();
         }
-        List<ModuleClonePair> greater = moduleClonePairs.stream().filter(n -> n.getPercentClonesModuleA() > 0.0).collect(Collectors.toList());
-        return greater;
     }
 
-//    private List<MsCodeClone> getTypeABCodeClones(){
-//        return MsCache.msCodeClones.
-//    }
-
-    /**
-     * Find code clones such that A has moduleA and B has moduleB
-     */
-    private List<MsCodeClone> getAssociatedCodeClones(String moduleA, String moduleB){
-        return MsCache.msCodeClones.stream()
-                .filter(n ->
-                        (n.getA().getMsController().getMsId().getPath().contains(moduleA) && n.getB().getMsController().getMsId().getPath().contains(moduleB) && (n.isTypeA() || n.isTypeB())) ||
-                        (n.getA().getMsController().getMsId().getPath().contains(moduleB) && n.getB().getMsController().getMsId().getPath().contains(moduleA) && (n.isTypeA() || n.isTypeB()))
-                        )
-                .collect(Collectors.toList());
+    public String convertToString(ModuleClonePair pair) {
+        return pair.toString();
     }
 
-
     /**
-     * How many Flows are represented in each module
+     * compare ever module with the other
+     * look at how similar those two modules are,
+     * the percentages are counted while the clones are classified, see ModuleCloneCounter
      */
-    private double flowRepresentation(List<MsFlowEntity> flowEntities, List<MsCodeClone> codeClones) {
-        // iterate through module A flows in code clones and look if it is present in the code clones (a)
-        int same = 0;
-
-//        for (MsCodeClone codeClone: codeClones
-//             ) {
-//            for (:
-//                 ) {
-//
-//            }
-//        }
-        for (MsFlowEntity msFlowEntity: flowEntities
-             ) {
-            for (MsCodeClone msCodeClone: codeClones
-                 ) {
-
-                if (msFlowEntity.getMsController().getClassName().equals(msCodeClone.getA().getMsController().getClassName()) &&
-                        msFlowEntity.getMsControllerMethod().getMethodName().equals(msCodeClone.getA().getMsControllerMethod().getMethodName())) {
-                    same += 1;
-                    break;
-                }
-
-//                if (msFlowEntity
-//                        .getMsController()
-//                        .getMsId().getPath()
-//                        .contains(msCodeClone.getA().getMsController().getMsId().getPath()) ||
-//                        msFlowEntity.getMsController().getMsId().getPath().contains(msCodeClone.getB().getMsController().getMsId().getPath())
-//                ){
-//                    same += 1;
-//                    break;
-//                }
-            }
-        }
-        if (flowEntities.size() == 0) {
-            return 0.0;
-        } else {
-            if (same == 0.0) {
-                return same;
-            } else {
-                return ((double) same / (double) flowEntities.size()) * 100;
-            }
-        }
-
+    public List<ModuleClonePair> createModuleClonePairs() {
+        return MsCache.getModuleCloneCounter().getModuleClonePairs();
     }
 }
@@ -0,0 +1,127 @@
+package edu.university.ecs.lab.semantics.util.factory;
+
+import edu.university.ecs.lab.semantics.entity.MsFlowEntity;
+import edu.university.ecs.lab.semantics.entity.graph.MsArgument;
+import edu.university.ecs.lab.semantics.entity.graph.MsMethod;
+import edu.university.ecs.lab.semantics.entity.graph.MsRestCall;
+import edu.university.ecs.lab.semantics.util.entitysimilarity.IdentifierNormalizer;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * the words every module uses in its flows, as sorted sets of interned token numbers
+ *
+ * the tokens come from the names the clone scoring compares: method names, return and argument types of the
+ * controller, service and repository methods, and the URLs and return types of the rest calls. two modules without
+ * common words cannot have similar flows beyond the structure of the flows themselves
+ */
+public class ModuleVocabulary {
+
+    private final Map<String, Integer> numbers = new HashMap<>();
+    private final int[][] moduleTokens;
+
+    /**
+     * @param moduleFlows the flows of every module, in the order of the modules
+     */
+    public ModuleVocabulary(List<List<MsFlowEntity>> moduleFlows) {
+        this.moduleTokens = new int[moduleFlows.size()][];
+        for (int m = 0; m < moduleFlows.size(); m++) {
+            TokenSet tokens = new TokenSet();
+            for (MsFlowEntity flow : moduleFlows.get(m)) {
+                addMethod(tokens, flow.getMsControllerMethod());
+                addMethod(tokens, flow.getMsServiceMethod());
+                addMethod(tokens, flow.getMsRepositoryMethod());
+                if (flow.getMsRestCalls() != null) {
+                    for (MsRestCall restCall : flow.getMsRestCalls()) {
+                        addName(tokens, restCall.getApi());
+                        addName(tokens, restCall.getReturnType());
+                    }
+                }
+            }
+            moduleTokens[m] = tokens.toSortedArray();
+        }
+    }
+
+    public int size(int module) {
+        return moduleTokens[module].length;
+    }
+
+    /**
+     * @return the number of common tokens divided by the size of the smaller vocabulary, 0 if one of them is empty
+     */
+    public double overlap(int i, int j) {
+        int[] a = moduleTokens[i];
+        int[] b = moduleTokens[j];
+        if (a.length == 0 || b.length == 0) {
+            return 0.0;
+        }
+        int common = 0;
+        for (int k = 0, l = 0; k < a.length && l < b.length; ) {
+            if (a[k] < b[l]) {
+                k++;
+            } else if (a[k] > b[l]) {
+                l++;
+            } else {
+                common++;
+                k++;
+                l++;
+            }
+        }
+        return (double) common / Math.min(a.length, b.length);
+    }
+
+    private void addMethod(TokenSet tokens, MsMethod method) {
+        if (method == null) {
+            return;
+        }
+        addName(tokens, method.getMethodName());
+        addName(tokens, method.getReturnType());
+        if (method.getMsArgumentList() != null) {
+            for (MsArgument argument : method.getMsArgumentList()) {
+                addName(tokens, argument.getReturnType());
+            }
+        }
+    }
+
+    private void addName(TokenSet tokens, String name) {
+        if (name == null) {
+            return;
+        }
+        for (String token : IdentifierNormalizer.normalize(name).getTokens()) {
+            Integer number = numbers.get(token);
+            if (number == null) {
+                number = numbers.size();
+                numbers.put(token, number);
+            }
+            tokens.add(number);
+        }
+    }
+
+    private static final class TokenSet {
+
+        private int[] tokens = new int[64];
+        private int size;
+
+        private void add(int token) {
+            if (size == tokens.length) {
+                tokens = Arrays.copyOf(tokens, size * 2);
+            }
+            tokens[size++] = token;
+        }
+
+        private int[] toSortedArray() {
+            int[] sorted = Arrays.copyOf(tokens, size);
+            Arrays.sort(sorted);
+            int distinct = 0;
+            for (int k = 0; k < sorted.length; k++) {
+                if (distinct == 0 || sorted[distinct - 1] != sorted[k]) {
+                    sorted[distinct++] = sorted[k];
+                }
+            }
+            return Arrays.copyOf(sorted, distinct);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package edu.university.ecs.lab.semantics.util.factory;
+
+import edu.university.ecs.lab.semantics.entity.MsCodeClone;
+import edu.university.ecs.lab.semantics.util.MsCache;
+
+/**
+ * collects the code clones into the MsCache store, the other lists keep the index of the clone in it,
+ * type A and B clones are also counted into the module figures
+ */
+public class MsCacheCodeCloneSink implements CodeCloneSink {
+
+    @Override
+    public void accept(MsCodeClone msCodeClone) {
+        int index = MsCache.addCodeClone(msCodeClone);
+        if (msCodeClone.getGlobalSimilarity() > 0.0) {
+            MsCache.addHighSimilar(index);
+        }
+        if (msCodeClone.getSimilarityController() == 1.0) {
+            MsCache.addSameController(index);
+        }
+        if (msCodeClone.getSimilarityRepository() > 0.0) {
+            MsCache.addSameRepository(index);
+        }
+        if (msCodeClone.getSimilarityRestCalls() >= 3.0) {
+            MsCache.addSameRestCall(index);
+        }
+        if (msCodeClone.isTypeC()) {
+            MsCache.typeC.addIndex(index);
+        }
+        if (msCodeClone.isTypeB()) {
+            MsCache.typeB.addIndex(index);
+        }
+        if (msCodeClone.isTypeA()) {
+            MsCache.typeA.addIndex(index);
+        }
+        if (msCodeClone.isTypeA() || msCodeClone.isTypeB()) {
+            MsCache.getModuleCloneCounter().add(index, msCodeClone);
+        }
+    }
+}
@@ -16,6 +16,8 @@ public class MsRestCallFactory {
         // ms cache add MsRestCall
         MsRestCall msRestCall = new MsRestCall();
         msRestCall.setStatementDeclaration(n.toString());
+        // the RestTemplate method, e.g. getForObject, gives the HTTP method of calls without an HttpMethod argument
+        msRestCall.setCalledMethodName(n.getNameAsString());
         // here try to print the n
         NodeList<Expression> expressionNodeList = n.getArguments();
         expressionNodeList.forEach(e -> {
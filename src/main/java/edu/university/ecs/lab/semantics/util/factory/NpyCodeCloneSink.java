@@ -0,0 +1,139 @@
+package edu.university.ecs.lab.semantics.util.factory;
+
+import edu.university.ecs.lab.semantics.entity.MsCodeClone;
+import edu.university.ecs.lab.semantics.util.file.NpyWriter;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * columnar export of the per-cfg clone attributes, next to the CSV files
+ *
+ * per-cfg-clones-npy (type A and B) and per-cfg-non-clones-npy (type C) hold one float32 .npy file per score column
+ * of ModuleCloneFactory.CLONES_ATTRIBUTES_HEADER, the clone type in clone.npy (A, B or N) and the flow names,
+ * one per line, in cfg-1.txt and cfg-2.txt
+ */
+public class NpyCodeCloneSink implements CodeCloneSink {
+
+    private static final String[] SCORE_COLUMNS = {"ctr", "srv", "rep", "cls", "global",
+            "ctr-method-name", "ctr-args-lit", "ctr-return-lit", "ctr-method-http",
+            "srv-method-name", "srv-args-lit", "srv-return-lit",
+            "rep-method-op", "rep-args-lit", "rep-return-lit",
+            "cal-method-http", "cal-url", "cal-return-lit"};
+
+    private ColumnSet clones;
+    private ColumnSet nonClones;
+
+    public NpyCodeCloneSink(String path) {
+        try {
+            clones = new ColumnSet(Paths.get(path, "per-cfg-clones-npy"));
+            nonClones = new ColumnSet(Paths.get(path, "per-cfg-non-clones-npy"));
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    @Override
+    public void accept(MsCodeClone msCodeClone) {
+        if (clones == null) {
+            return;
+        }
+        try {
+            if (msCodeClone.isTypeA() || msCodeClone.isTypeB()) {
+                clones.add(msCodeClone);
+            }
+            if (msCodeClone.isTypeC()) {
+                nonClones.add(msCodeClone);
+            }
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            if (clones != null) {
+                clones.close();
+            }
+            if (nonClones != null) {
+                nonClones.close();
+            }
+        } catch (IOException e) {
+            System.err.format("IOException: %s%n", e);
+        }
+        clones = null;
+        nonClones = null;
+    }
+
+    // stops writing after the first error instead of reporting it for every row
+    private void fail(IOException e) {
+        System.err.format("IOException: %s%n", e);
+        close();
+    }
+
+    private static class ColumnSet {
+
+        private final NpyWriter[] scores = new NpyWriter[SCORE_COLUMNS.length];
+        private final NpyWriter clone;
+        private final Writer cfg1;
+        private final Writer cfg2;
+
+        private ColumnSet(Path directory) throws IOException {
+            Files.createDirectories(directory);
+            for (int i = 0; i < SCORE_COLUMNS.length; i++) {
+                scores[i] = new NpyWriter(directory.resolve(SCORE_COLUMNS[i] + ".npy"), NpyWriter.FLOAT32);
+            }
+            clone = new NpyWriter(directory.resolve("clone.npy"), NpyWriter.BYTE_STRING);
+            cfg1 = new BufferedWriter(Files.newBufferedWriter(directory.resolve("cfg-1.txt"), StandardCharsets.UTF_8), 1 << 16);
+            cfg2 = new BufferedWriter(Files.newBufferedWriter(directory.resolve("cfg-2.txt"), StandardCharsets.UTF_8), 1 << 16);
+        }
+
+        // in the order of SCORE_COLUMNS
+        private void add(MsCodeClone mcc) throws IOException {
+            int c = 0;
+            scores[c++].add((float) mcc.getSimilarityController());
+            scores[c++].add((float) mcc.getSimilarityService());
+            scores[c++].add((float) mcc.getSimilarityRepository());
+            scores[c++].add((float) mcc.getSimilarityRestCalls());
+            scores[c++].add((float) mcc.getGlobalSimilarity());
+            scores[c++].add((float) mcc.getCtrMethodNameSimilarity());
+            scores[c++].add((float) mcc.getCtrArgumentsLiteralSimilarity());
+            scores[c++].add((float) mcc.getCtrReturnTypeLiteralSimilarity());
+            scores[c++].add((float) mcc.getCtrHttpMethodSimilarity());
+            scores[c++].add((float) mcc.getSrvMethodNameSimilarity());
+            scores[c++].add((float) mcc.getSrvArgumentsLiteralSimilarity());
+            scores[c++].add((float) mcc.getSrvReturnTypeLiteralSimilarity());
+            scores[c++].add((float) mcc.getRepOperationTypeSimilarity());
+            scores[c++].add((float) mcc.getRepArgumentsLiteralSimilarity());
+            scores[c++].add((float) mcc.getRepReturnTypeLiteralSimilarity());
+            scores[c++].add((float) mcc.getCalHttpMethodSimilarity());
+            scores[c++].add((float) mcc.getCalURLSimilarity());
+            scores[c].add((float) mcc.getCalReturnTypeLiteralSimilarity());
+            clone.add((byte) (mcc.isTypeA() ? 'A' : (mcc.isTypeB() ? 'B' : 'N')));
+            writeName(cfg1, mcc.getA().getMsController().getMsId().getPath(), mcc.getA().getMsControllerMethod().getMethodName());
+            writeName(cfg2, mcc.getB().getMsController().getMsId().getPath(), mcc.getB().getMsControllerMethod().getMethodName());
+        }
+
+        private static void writeName(Writer writer, String controller, String method) throws IOException {
+            writer.write(controller);
+            writer.write('.');
+            writer.write(method);
+            writer.write('\n');
+        }
+
+        private void close() throws IOException {
+            for (NpyWriter score : scores) {
+                score.close();
+            }
+            clone.close();
+            cfg1.close();
+            cfg2.close();
+        }
+    }
+}
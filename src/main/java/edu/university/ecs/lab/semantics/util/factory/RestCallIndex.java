@@ -0,0 +1,191 @@
+package edu.university.ecs.lab.semantics.util.factory;
+
+import edu.university.ecs.lab.semantics.entity.MsFlowEntity;
+import edu.university.ecs.lab.semantics.entity.graph.MsRestCall;
+import edu.university.ecs.lab.semantics.util.entitysimilarity.strategies.EntitySimilarityCheckStrategy;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * the rest calls of every flow, normalized once: URLs without whitespace in lower case, HTTP methods as they are and
+ * return types in lower case, each interned to an id and kept as sorted (id, count) lists
+ *
+ * two calls match on a part if their ids for it are the same, so the number of matching call pairs of two flows is a
+ * join of their sorted lists instead of a loop over all call pairs
+ */
+public class RestCallIndex {
+
+    private final Map<String, Integer> ids = new HashMap<>();
+    // by flow id, null for flows without rest call list
+    private final FlowRestCalls[] flows;
+
+    public RestCallIndex(List<MsFlowEntity> flows) {
+        this.flows = new FlowRestCalls[flows.size()];
+        for (MsFlowEntity flow : flows) {
+            if (flow.getMsRestCalls() != null) {
+                this.flows[flow.getId()] = new FlowRestCalls(flow.getMsRestCalls());
+            }
+        }
+    }
+
+    /**
+     * scores the rest calls of two flows, the share of matching URLs, return types and HTTP methods over all call pairs
+     * @return null if one of the flows has no rest call list
+     */
+    public RestCallMatch match(MsFlowEntity a, MsFlowEntity b, EntitySimilarityCheckStrategy entitySimilarityChecker) {
+        FlowRestCalls aCalls = flows[a.getId()];
+        FlowRestCalls bCalls = flows[b.getId()];
+        if (aCalls == null || bCalls == null) {
+            return null;
+        }
+        int urlPairs = join(aCalls.urls, bCalls.urls);
+        int httpMethodPairs = join(aCalls.httpMethods, bCalls.httpMethods);
+        int returnTypePairs = 0;
+        double returnTypeSimilarity = 0;
+        Keys aTypes = aCalls.returnTypes;
+        Keys bTypes = bCalls.returnTypes;
+        for (int k = 0, l = 0; k < aTypes.ids.length && l < bTypes.ids.length; ) {
+            if (aTypes.ids[k] < bTypes.ids[l]) {
+                k++;
+            } else if (aTypes.ids[k] > bTypes.ids[l]) {
+                l++;
+            } else {
+                returnTypePairs += aTypes.counts[k] * bTypes.counts[l];
+                // the same return type can be written with other cases, each spelling is compared once
+                for (String aName : aCalls.returnTypeNames[k]) {
+                    for (String bName : bCalls.returnTypeNames[l]) {
+                        double similarity = entitySimilarityChecker.calculateSimilarity(a.getPackageName(), b.getPackageName(), aName, bName);
+                        if (returnTypeSimilarity < similarity) {
+                            returnTypeSimilarity = similarity;
+                        }
+                    }
+                }
+                k++;
+                l++;
+            }
+        }
+        double denominator = Math.max(aCalls.size, bCalls.size);
+        double similarity = denominator == 0.0 ? 0.0 : (urlPairs + returnTypePairs + httpMethodPairs) / 3.0 / denominator;
+        return new RestCallMatch(similarity, urlPairs > 0 ? 1.0 : 0.0, httpMethodPairs > 0 ? 1.0 : 0.0, returnTypeSimilarity);
+    }
+
+    private static int join(Keys a, Keys b) {
+        int pairs = 0;
+        for (int k = 0, l = 0; k < a.ids.length && l < b.ids.length; ) {
+            if (a.ids[k] < b.ids[l]) {
+                k++;
+            } else if (a.ids[k] > b.ids[l]) {
+                l++;
+            } else {
+                pairs += a.counts[k] * b.counts[l];
+                k++;
+                l++;
+            }
+        }
+        return pairs;
+    }
+
+    private int id(String key) {
+        Integer id = ids.get(key);
+        if (id == null) {
+            id = ids.size();
+            ids.put(key, id);
+        }
+        return id;
+    }
+
+    private final class FlowRestCalls {
+
+        private final int size;
+        private final Keys urls;
+        private final Keys httpMethods;
+        private final Keys returnTypes;
+        // the distinct spellings of each return type, in the order of returnTypes
+        private final String[][] returnTypeNames;
+
+        private FlowRestCalls(List<MsRestCall> restCalls) {
+            this.size = restCalls.size();
+            TreeMap<Integer, Integer> urlCounts = new TreeMap<>();
+            TreeMap<Integer, Integer> httpMethodCounts = new TreeMap<>();
+            TreeMap<Integer, Integer> returnTypeCounts = new TreeMap<>();
+            Map<Integer, List<String>> names = new HashMap<>();
+            for (MsRestCall restCall : restCalls) {
+                if (restCall.getApi() != null) {
+                    urlCounts.merge(id(restCall.getApi().replaceAll("\\s", "").toLowerCase()), 1, Integer::sum);
+                }
+                if (restCall.getHttpMethod() != null) {
+                    httpMethodCounts.merge(id(restCall.getHttpMethod()), 1, Integer::sum);
+                }
+                if (restCall.getReturnType() != null) {
+                    int id = id(restCall.getReturnType().toLowerCase());
+                    returnTypeCounts.merge(id, 1, Integer::sum);
+                    List<String> spellings = names.computeIfAbsent(id, k -> new ArrayList<>(1));
+                    if (!spellings.contains(restCall.getReturnType())) {
+                        spellings.add(restCall.getReturnType());
+                    }
+                }
+            }
+            this.urls = new Keys(urlCounts);
+            this.httpMethods = new Keys(httpMethodCounts);
+            this.returnTypes = new Keys(returnTypeCounts);
+            this.returnTypeNames = new String[returnTypes.ids.length][];
+            for (int k = 0; k < returnTypes.ids.length; k++) {
+                returnTypeNames[k] = names.get(returnTypes.ids[k]).toArray(new String[0]);
+            }
+        }
+    }
+
+    private static final class Keys {
+
+        private final int[] ids;
+        private final int[] counts;
+
+        private Keys(TreeMap<Integer, Integer> counts) {
+            this.ids = new int[counts.size()];
+            this.counts = new int[counts.size()];
+            int k = 0;
+            for (Map.Entry<Integer, Integer> entry : counts.entrySet()) {
+                ids[k] = entry.getKey();
+                this.counts[k++] = entry.getValue();
+            }
+        }
+    }
+
+    /**
+     * the rest call similarity of two flows and the best URL, HTTP method and return type score of any call pair
+     */
+    public static final class RestCallMatch {
+
+        private final double similarity;
+        private final double urlSimilarity;
+        private final double httpMethodSimilarity;
+        private final double returnTypeSimilarity;
+
+        private RestCallMatch(double similarity, double urlSimilarity, double httpMethodSimilarity, double returnTypeSimilarity) {
+            this.similarity = similarity;
+            this.urlSimilarity = urlSimilarity;
+            this.httpMethodSimilarity = httpMethodSimilarity;
+            this.returnTypeSimilarity = returnTypeSimilarity;
+        }
+
+        public double getSimilarity() {
+            return similarity;
+        }
+
+        public double getUrlSimilarity() {
+            return urlSimilarity;
+        }
+
+        public double getHttpMethodSimilarity() {
+            return httpMethodSimilarity;
+        }
+
+        public double getReturnTypeSimilarity() {
+            return returnTypeSimilarity;
+        }
+    }
+}
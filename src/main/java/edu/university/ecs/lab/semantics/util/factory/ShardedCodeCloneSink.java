@@ -0,0 +1,159 @@
+package edu.university.ecs.lab.semantics.util.factory;
+
+import edu.university.ecs.lab.semantics.entity.MsCodeClone;
+import edu.university.ecs.lab.semantics.util.MsCache;
+import edu.university.ecs.lab.semantics.util.file.CsvWriter;
+import edu.university.ecs.lab.semantics.util.file.OutputFiles;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * writes the code clones of every module pair into its own CSV file in clones-by-module-pair,
+ * with the columns of the per-cfg files, so a tool interested in two services reads only their file
+ *
+ * manifest.csv lists every written shard with its size and clone statistics, a row is added as soon as the pair is done.
+ * pairs without clones get no shard
+ */
+public class ShardedCodeCloneSink implements CodeCloneSink {
+
+    public static final String DIRECTORY = "clones-by-module-pair";
+    public static final String MANIFEST = "manifest";
+
+    private final String directory;
+    private CsvWriter manifest;
+    private CsvWriter shard;
+    private String shardName;
+    private int clones;
+    private int nonClones;
+    private int typeA;
+    private int typeB;
+    private double maxGlobalSimilarity;
+    private double globalSimilaritySum;
+
+    public ShardedCodeCloneSink(String path) {
+        this.directory = Paths.get(path, DIRECTORY).toString();
+        try {
+            Files.createDirectories(Paths.get(directory));
+            manifest = new CsvWriter(directory, MANIFEST);
+            manifest.header("module a", "module b", "file", "bytes", "rows", "clones", "non-clones", "type a", "type b",
+                    "max global", "mean global");
+        } catch (IOException e) {
+            System.err.format("IOException: %s%n", e);
+            manifest = null;
+        }
+    }
+
+    @Override
+    public boolean beginModulePair(int i, int j) {
+        shard = null;
+        shardName = fileName(MsCache.modules.get(i), MsCache.modules.get(j));
+        clones = 0;
+        nonClones = 0;
+        typeA = 0;
+        typeB = 0;
+        maxGlobalSimilarity = 0;
+        globalSimilaritySum = 0;
+        return true;
+    }
+
+    @Override
+    public void accept(MsCodeClone msCodeClone) {
+        if (manifest == null) {
+            return;
+        }
+        try {
+            // opened with the first clone, so pairs without any leave no empty file behind
+            if (shard == null) {
+                shard = new CsvWriter(directory, shardName);
+                shard.header(ModuleCloneFactory.CLONES_ATTRIBUTES_HEADER);
+            }
+            ModuleCloneFactory.writeClonesAttributes(shard, msCodeClone);
+        } catch (IOException e) {
+            fail(e);
+            return;
+        }
+        if (msCodeClone.isTypeA() || msCodeClone.isTypeB()) {
+            clones++;
+        }
+        if (msCodeClone.isTypeC()) {
+            nonClones++;
+        }
+        if (msCodeClone.isTypeA()) {
+            typeA++;
+        }
+        if (msCodeClone.isTypeB()) {
+            typeB++;
+        }
+        maxGlobalSimilarity = Math.max(maxGlobalSimilarity, msCodeClone.getGlobalSimilarity());
+        globalSimilaritySum += msCodeClone.getGlobalSimilarity();
+    }
+
+    @Override
+    public void endModulePair(int i, int j) {
+        if (shard == null || manifest == null) {
+            return;
+        }
+        try {
+            shard.close();
+            shard = null;
+            Path file = Paths.get(directory, OutputFiles.fileName(shardName + ".csv"));
+            int rows = clones + nonClones;
+            manifest.cell(MsCache.modules.get(i))
+                    .cell(MsCache.modules.get(j))
+                    .cell(file.getFileName().toString())
+                    .cell(Long.toString(Files.size(file)))
+                    .cell(rows)
+                    .cell(clones)
+                    .cell(nonClones)
+                    .cell(typeA)
+                    .cell(typeB)
+                    .cell(maxGlobalSimilarity)
+                    .cell(rows == 0 ? 0.0 : globalSimilaritySum / rows)
+                    .endRow();
+            manifest.flush();
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            if (shard != null) {
+                shard.close();
+            }
+            if (manifest != null) {
+                manifest.close();
+            }
+        } catch (IOException e) {
+            System.err.format("IOException: %s%n", e);
+        }
+        shard = null;
+        manifest = null;
+    }
+
+    // stops writing after the first error instead of reporting it for every row
+    private void fail(IOException e) {
+        System.err.format("IOException: %s%n", e);
+        close();
+    }
+
+    /**
+     * @return moduleA--moduleB with characters that are not safe in file names replaced by _
+     */
+    static String fileName(String moduleA, String moduleB) {
+        return safe(moduleA) + "--" + safe(moduleB);
+    }
+
+    private static String safe(String module) {
+        StringBuilder sb = new StringBuilder(module.length());
+        for (int k = 0; k < module.length(); k++) {
+            char c = module.charAt(k);
+            sb.append(Character.isLetterOrDigit(c) || c == '-' || c == '_' || c == '.' ? c : '_');
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,191 @@
+package edu.university.ecs.lab.semantics.util.factory;
+
+import edu.university.ecs.lab.semantics.entity.MsCodeClone;
+import edu.university.ecs.lab.semantics.entity.MsFlowEntity;
+import edu.university.ecs.lab.semantics.util.MsCache;
+import edu.university.ecs.lab.semantics.util.file.CsvWriter;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * keeps the k most similar flows in other modules for every flow, or only for the flows of one endpoint,
+ * and writes them to top-k-clones.csv when detection is done
+ *
+ * pairs of flows that share a module are not offered, so the intra-module pairs of the intra and both scopes never
+ * enter the heaps. every flow has a bounded min-heap of (flow, global similarity, clone type) in flat arrays, a scored pair is offered
+ * to the heaps of both its flows and only replaces the weakest entry, so no pair list is kept or sorted
+ */
+public class TopKCodeCloneSink implements CodeCloneSink {
+
+    public static final String FILE_NAME = "top-k-clones";
+
+    private final String path;
+    private final int k;
+    private final ModuleCloneCounter moduleCloneCounter;
+    // heap slot of every flow, -1 for flows that are not queried
+    private final int[] slots;
+    private final int[] heapFlows;
+    private final double[] heapSimilarities;
+    private final byte[] heapTypes;
+    private final int[] heapSizes;
+
+    /**
+     * @param k the number of similar flows kept per flow
+     * @param endpoint only flows whose cfg name (path.method) or request mapping contains it are queried, null for all flows
+     */
+    public TopKCodeCloneSink(String path, int k, String endpoint) {
+        this.path = path;
+        this.k = k;
+        this.moduleCloneCounter = MsCache.getModuleCloneCounter();
+        this.slots = new int[MsCache.msFlows.size()];
+        int queried = 0;
+        for (MsFlowEntity msFlowEntity : MsCache.msFlows) {
+            slots[msFlowEntity.getId()] = endpoint == null || matches(msFlowEntity, endpoint) ? queried++ : -1;
+        }
+        this.heapFlows = new int[queried * k];
+        this.heapSimilarities = new double[queried * k];
+        this.heapTypes = new byte[queried * k];
+        this.heapSizes = new int[queried];
+    }
+
+    @Override
+    public void accept(MsCodeClone msCodeClone) {
+        int a = msCodeClone.getAId();
+        int b = msCodeClone.getBId();
+        if (a < 0 || b < 0 || shareModule(a, b)) {
+            return;
+        }
+        byte type = (byte) (msCodeClone.isTypeA() ? 'A' : (msCodeClone.isTypeB() ? 'B' : 'N'));
+        offer(slots[a], b, msCodeClone.getGlobalSimilarity(), type);
+        offer(slots[b], a, msCodeClone.getGlobalSimilarity(), type);
+    }
+
+    @Override
+    public void close() {
+        try (CsvWriter csv = new CsvWriter(path, FILE_NAME)) {
+            csv.header("cfg", "rank", "similar cfg", "global", "clone");
+            for (MsFlowEntity msFlowEntity : MsCache.msFlows) {
+                int slot = slots[msFlowEntity.getId()];
+                if (slot < 0) {
+                    continue;
+                }
+                int base = slot * k;
+                Integer[] order = new Integer[heapSizes[slot]];
+                for (int i = 0; i < order.length; i++) {
+                    order[i] = base + i;
+                }
+                // only k entries, the strongest first
+                Arrays.sort(order, (x, y) -> x.equals(y) ? 0
+                        : weaker(heapSimilarities[x], heapFlows[x], heapSimilarities[y], heapFlows[y]) ? 1 : -1);
+                for (int rank = 0; rank < order.length; rank++) {
+                    int entry = order[rank];
+                    MsFlowEntity similar = MsCache.msFlows.get(heapFlows[entry]);
+                    csv.cell(msFlowEntity.getMsController().getMsId().getPath(), msFlowEntity.getMsControllerMethod().getMethodName())
+                            .cell(rank + 1)
+                            .cell(similar.getMsController().getMsId().getPath(), similar.getMsControllerMethod().getMethodName())
+                            .cell(heapSimilarities[entry])
+                            .cell(String.valueOf((char) heapTypes[entry]))
+                            .endRow();
+                }
+            }
+        } catch (IOException e) {
+            System.err.format("IOException: %s%n", e);
+        }
+    }
+
+    private void offer(int slot, int flow, double similarity, byte type) {
+        if (slot < 0 || k == 0) {
+            return;
+        }
+        int base = slot * k;
+        int size = heapSizes[slot];
+        if (size == k && !weaker(heapSimilarities[base], heapFlows[base], similarity, flow)) {
+            return;
+        }
+        // a flow in several modules can be scored against the same flow more than once, it is kept once
+        for (int position = 0; position < size; position++) {
+            if (heapFlows[base + position] == flow) {
+                if (similarity > heapSimilarities[base + position]) {
+                    siftDown(base, size, position, flow, similarity, type);
+                }
+                return;
+            }
+        }
+        if (size < k) {
+            heapSizes[slot]++;
+            siftUp(base, size, flow, similarity, type);
+        } else {
+            siftDown(base, size, 0, flow, similarity, type);
+        }
+    }
+
+    private void siftUp(int base, int position, int flow, double similarity, byte type) {
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (!weaker(similarity, flow, heapSimilarities[base + parent], heapFlows[base + parent])) {
+                break;
+            }
+            move(base, parent, position);
+            position = parent;
+        }
+        set(base, position, flow, similarity, type);
+    }
+
+    // puts the entry at the position and moves it down, size is the number of entries in the heap
+    private void siftDown(int base, int size, int position, int flow, double similarity, byte type) {
+        while (true) {
+            int child = 2 * position + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && weaker(heapSimilarities[base + child + 1], heapFlows[base + child + 1],
+                    heapSimilarities[base + child], heapFlows[base + child])) {
+                child++;
+            }
+            if (!weaker(heapSimilarities[base + child], heapFlows[base + child], similarity, flow)) {
+                break;
+            }
+            move(base, child, position);
+            position = child;
+        }
+        set(base, position, flow, similarity, type);
+    }
+
+    private void move(int base, int from, int to) {
+        set(base, to, heapFlows[base + from], heapSimilarities[base + from], heapTypes[base + from]);
+    }
+
+    private void set(int base, int position, int flow, double similarity, byte type) {
+        heapFlows[base + position] = flow;
+        heapSimilarities[base + position] = similarity;
+        heapTypes[base + position] = type;
+    }
+
+    // lower similarity is weaker, on a tie the higher flow id, so the result does not depend on the order of the pairs
+    private static boolean weaker(double similarity, int flow, double otherSimilarity, int otherFlow) {
+        int compare = Double.compare(similarity, otherSimilarity);
+        return compare < 0 || (compare == 0 && flow > otherFlow);
+    }
+
+    // modules are compared by name, like ModuleCloneCounter does
+    private boolean shareModule(int a, int b) {
+        for (int p : moduleCloneCounter.getModules(a)) {
+            for (int q : moduleCloneCounter.getModules(b)) {
+                if (MsCache.modules.get(p).equals(MsCache.modules.get(q))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean matches(MsFlowEntity msFlowEntity, String endpoint) {
+        if (msFlowEntity.getMsController() == null || msFlowEntity.getMsControllerMethod() == null) {
+            return false;
+        }
+        String cfg = msFlowEntity.getMsController().getMsId().getPath() + "." + msFlowEntity.getMsControllerMethod().getMethodName();
+        String mapping = msFlowEntity.getMsControllerMethod().getMappingPath();
+        return cfg.contains(endpoint) || (mapping != null && mapping.contains(endpoint));
+    }
+}
@@ -2,107 +2,215 @@ package edu.university.ecs.lab.semantics.util.file;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
-import com.google.gson.reflect.TypeToken;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 
 import edu.university.ecs.lab.semantics.entity.*;
 import edu.university.ecs.lab.semantics.entity.graph.*;
 import edu.university.ecs.lab.semantics.util.MsCache;
+import edu.university.ecs.lab.semantics.util.factory.MsCacheCodeCloneSink;
 
 import java.io.*;
-import java.lang.reflect.Type;
-import java.nio.file.Files;
-import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 public class CacheManager {
 
+    // shared by all writes, NaN scores are written as NaN like before
+    private static final Gson GSON = new GsonBuilder().serializeSpecialFloatingPointValues().create();
+
     private String path = "C:\\git\\data\\";
 
+    /**
+     * writes the lists concurrently on the I/O executor and returns once all files are written
+     */
     public void persistCache(String path){
         this.path = path;
-        writeArrayList("msClassList", MsCache.msClassList);
-        writeArrayList("msMethodList", MsCache.msMethodList);
-        writeArrayList("msMethodCallList", MsCache.msMethodCallList);
-        writeArrayList("msRestCallList", MsCache.msRestCallList);
-        writeArrayList("msFieldList", MsCache.msFieldList);
-        writeArrayList("msModulesList", MsCache.modules);
-        writeArrayList("msFlowList", MsCache.msFlows);
-        writeArrayList("msCodeClones", MsCache.msCodeClones);
-        writeArrayList("msCodeClonesTypeA", MsCache.typeA);
-        writeArrayList("msCodeClonesTypeB", MsCache.typeB);
+        CompletableFuture.allOf(
+                writeArrayListAsync("msClassList", MsCache.msClassList),
+                writeArrayListAsync("msMethodList", MsCache.msMethodList),
+                writeArrayListAsync("msMethodCallList", MsCache.msMethodCallList),
+                writeArrayListAsync("msRestCallList", MsCache.msRestCallList),
+                writeArrayListAsync("msFieldList", MsCache.msFieldList),
+                writeArrayListAsync("msModulesList", MsCache.modules),
+                writeArrayListAsync("msFlowList", MsCache.msFlows),
+                // the clones are read out of the store into one reused object each
+                writeArrayAsync("msCodeClones", MsCache.msCodeClones::forEachClone),
+                writeArrayAsync("msCodeClonesTypeA", MsCache.typeA::forEachClone),
+                writeArrayAsync("msCodeClonesTypeB", MsCache.typeB::forEachClone)
+        ).join();
+    }
+
+    private <T> CompletableFuture<Void> writeArrayListAsync(String name, List<T> list) {
+        return writeArrayAsync(name, list::forEach);
     }
 
+    private <T> CompletableFuture<Void> writeArrayAsync(String name, Consumer<Consumer<T>> elements) {
+        return CompletableFuture.runAsync(() -> writeArray(name, elements), OutputFiles.executor());
+    }
+
+    /**
+     * streams the list into the file one element at a time, so no JSON string of the whole list is built,
+     * the file is name.txt.gz if output compression is turned on
+     */
     public <T> void writeArrayList(String name, List<T> list) {
+        writeArray(name, list::forEach);
+    }
+
+    /**
+     * @param elements hands every element to the consumer it is given, each one is written before the next is handed over
+     */
+    private <T> void writeArray(String name, Consumer<Consumer<T>> elements) {
     	System.err.println(name);
-        try (FileWriter writer = new FileWriter(path +"/" + name + ".txt");
-             BufferedWriter bw = new BufferedWriter(writer)) {
-//                Gson gson = new Gson();
-//                String jsonString = gson.toJson(list);
-//        	    FloatContainer container = new FloatContainer(Float.NaN);
-        		Gson gson = new GsonBuilder().serializeSpecialFloatingPointValues().create();
-        	    String jsonString = gson.toJson(list);//{"includedFloat":NaN}
-                bw.write(jsonString);
-        } catch (IOException e) {
-            System.err.format("IOException: %s%n", e);
+        try (Writer writer = OutputFiles.newWriter(path, name + ".txt");
+             JsonWriter jsonWriter = GSON.newJsonWriter(writer)) {
+            jsonWriter.beginArray();
+            elements.accept(element -> {
+                try {
+                    if (element == null) {
+                        jsonWriter.nullValue();
+                    } else {
+                        GSON.toJson(element, element.getClass(), jsonWriter);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            jsonWriter.endArray();
+        } catch (IOException | UncheckedIOException e) {
+            System.err.format("IOException: %s%n", e instanceof UncheckedIOException ? e.getCause() : e);
         }
     }
 
+    /**
+     * reads the lists back one element at a time, repeated strings are shared and the classes, methods, calls
+     * and fields of the flows are the same objects as in the cache lists, like after the analysis that wrote them.
+     * the clones go into the clone store, their type lists are rebuilt from it like during clone detection
+     */
     public void recreateCache(String cachePath){
 
         this.path = cachePath;
 
-        Gson gson = new Gson();
-
-        String data = readDataIntoString("msModulesList");
-        Type listOfMyClassObject = new TypeToken<ArrayList<String>>() {}.getType();
-        List<String> msModulesList = gson.fromJson(data, listOfMyClassObject);
-        MsCache.modules = msModulesList;
-
-        data = readDataIntoString("msClassList");
-        listOfMyClassObject = new TypeToken<ArrayList<MsClass>>() {}.getType();
-        List<MsClass> msClassList = gson.fromJson(data, listOfMyClassObject);
-        MsCache.msClassList = msClassList;
-
-        data = readDataIntoString("msMethodList");
-        listOfMyClassObject = new TypeToken<ArrayList<MsMethod>>() {}.getType();
-        List<MsMethod> msMethodList = gson.fromJson(data, listOfMyClassObject);
-        MsCache.msMethodList = msMethodList;
-
-        data = readDataIntoString("msMethodCallList");
-        listOfMyClassObject = new TypeToken<ArrayList<MsMethodCall>>() {}.getType();
-        List<MsMethodCall> msMethodCallList = gson.fromJson(data, listOfMyClassObject);
-        MsCache.msMethodCallList = msMethodCallList;
-
-        data = readDataIntoString("msRestCallList");
-        listOfMyClassObject = new TypeToken<ArrayList<MsRestCall>>() {}.getType();
-        List<MsRestCall> msRestCallList = gson.fromJson(data, listOfMyClassObject);
-        MsCache.msRestCallList = msRestCallList;
-
-        data = readDataIntoString("msFieldList");
-        listOfMyClassObject = new TypeToken<ArrayList<MsField>>() {}.getType();
-        List<MsField> msFieldList = gson.fromJson(data, listOfMyClassObject);
-        MsCache.msFieldList = msFieldList;
-
-        data = readDataIntoString("msFlowList");
-        listOfMyClassObject = new TypeToken<ArrayList<MsFlowEntity>>() {}.getType();
-        List<MsFlowEntity> msFlowEntities = gson.fromJson(data, listOfMyClassObject);
+        Gson gson = new GsonBuilder().registerTypeAdapter(String.class, new SharedStringAdapter()).create();
+
+        MsCache.modules = readArrayList(gson, "msModulesList", String.class);
+        MsCache.msClassList = readArrayList(gson, "msClassList", MsClass.class);
+        MsCache.msMethodList = readArrayList(gson, "msMethodList", MsMethod.class);
+        MsCache.msMethodCallList = readArrayList(gson, "msMethodCallList", MsMethodCall.class);
+        MsCache.msRestCallList = readArrayList(gson, "msRestCallList", MsRestCall.class);
+        MsCache.msFieldList = readArrayList(gson, "msFieldList", MsField.class);
+
+        List<MsFlowEntity> msFlowEntities = readArrayList(gson, "msFlowList", MsFlowEntity.class);
+        linkFlowParts(msFlowEntities);
         MsCache.msFlows = msFlowEntities;
 
-        data = readDataIntoString("msCodeClones");
-        listOfMyClassObject = new TypeToken<ArrayList<MsFlowEntity>>() {}.getType();
-        List<MsCodeClone> msCodeClones = gson.fromJson(data, listOfMyClassObject);
-        MsCache.msCodeClones = msCodeClones;
+        MsCache.initCodeClones(MsCache.msCodeClones != null && MsCache.msCodeClones.isSinglePrecision());
+        readArray(gson, "msCodeClones", MsCodeClone.class, new MsCacheCodeCloneSink()::accept);
     }
 
-    public String readDataIntoString(String name) {
-        String s = null;
-        try {
-            s = Files.readString(Paths.get(path + name + ".txt"));
+    /**
+     * reads name.txt, or name.txt.gz if the cache was written compressed, one element at a time
+     * @return the elements, an empty list if the file cannot be read
+     */
+    public <T> List<T> readArrayList(Gson gson, String name, Class<T> type) {
+        List<T> list = new ArrayList<>();
+        readArray(gson, name, type, list::add);
+        return list;
+    }
+
+    private <T> void readArray(Gson gson, String name, Class<T> type, Consumer<T> consumer) {
+        TypeAdapter<T> adapter = gson.getAdapter(type);
+        try (JsonReader jsonReader = gson.newJsonReader(OutputFiles.newReader(path, name + ".txt"))) {
+            // NaN scores are written as NaN
+            jsonReader.setLenient(true);
+            jsonReader.beginArray();
+            while (jsonReader.hasNext()) {
+                consumer.accept(adapter.read(jsonReader));
+            }
+            jsonReader.endArray();
         } catch (IOException e) {
             e.printStackTrace();
         }
-        return s;
+    }
+
+    /**
+     * replaces the copies the flows were deserialized with by the equal objects of the cache lists
+     */
+    private void linkFlowParts(List<MsFlowEntity> msFlowEntities) {
+        Map<Object, MsClass> classes = index(MsCache.msClassList, Function.identity());
+        Map<Object, MsMethod> methods = index(MsCache.msMethodList, Function.identity());
+        Map<Object, MsMethodCall> methodCalls = index(MsCache.msMethodCallList, Function.identity());
+        Map<Object, MsField> fields = index(MsCache.msFieldList, Function.identity());
+        // rest calls compare by api, method and return type only, so the call site is part of the key
+        Function<MsRestCall, Object> restCallKey = restCall -> Arrays.asList(restCall.getMsId(), restCall.getParentClassId(),
+                restCall.getParentMethodName(), restCall.getLineNumber(), restCall.getStatementDeclaration(),
+                restCall.getApi(), restCall.getHttpMethod(), restCall.getReturnType());
+        Map<Object, MsRestCall> restCalls = index(MsCache.msRestCallList, restCallKey);
+        for (MsFlowEntity msFlowEntity : msFlowEntities) {
+            msFlowEntity.setMsController(shared(classes, msFlowEntity.getMsController(), Function.identity()));
+            msFlowEntity.setMsService(shared(classes, msFlowEntity.getMsService(), Function.identity()));
+            msFlowEntity.setMsRepository(shared(classes, msFlowEntity.getMsRepository(), Function.identity()));
+            msFlowEntity.setMsControllerMethod(shared(methods, msFlowEntity.getMsControllerMethod(), Function.identity()));
+            msFlowEntity.setMsServiceMethod(shared(methods, msFlowEntity.getMsServiceMethod(), Function.identity()));
+            msFlowEntity.setMsRepositoryMethod(shared(methods, msFlowEntity.getMsRepositoryMethod(), Function.identity()));
+            msFlowEntity.setMsServiceMethodCall(shared(methodCalls, msFlowEntity.getMsServiceMethodCall(), Function.identity()));
+            msFlowEntity.setMsRepositoryMethodCall(shared(methodCalls, msFlowEntity.getMsRepositoryMethodCall(), Function.identity()));
+            msFlowEntity.setMsControllerServiceField(shared(fields, msFlowEntity.getMsControllerServiceField(), Function.identity()));
+            msFlowEntity.setMsServiceRepositoryField(shared(fields, msFlowEntity.getMsServiceRepositoryField(), Function.identity()));
+            if (msFlowEntity.getMsRestCalls() != null) {
+                msFlowEntity.getMsRestCalls().replaceAll(restCall -> shared(restCalls, restCall, restCallKey));
+            }
+        }
+    }
+
+    private static <T> Map<Object, T> index(List<T> list, Function<? super T, ?> key) {
+        Map<Object, T> index = new HashMap<>(list.size() * 2);
+        for (T element : list) {
+            index.putIfAbsent(key.apply(element), element);
+        }
+        return index;
+    }
+
+    // objects missing from the lists are added, so flows still share them with each other
+    private static <T> T shared(Map<Object, T> index, T value, Function<? super T, ?> key) {
+        if (value == null) {
+            return null;
+        }
+        T existing = index.putIfAbsent(key.apply(value), value);
+        return existing == null ? value : existing;
+    }
+
+    /**
+     * deserializes strings through one table, so the package, class and path names repeated in every
+     * element are kept once
+     */
+    private static class SharedStringAdapter extends TypeAdapter<String> {
+
+        private final Map<String, String> strings = new HashMap<>();
+
+        @Override
+        public void write(JsonWriter out, String value) throws IOException {
+            out.value(value);
+        }
+
+        @Override
+        public String read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            String value = in.peek() == JsonToken.BOOLEAN ? Boolean.toString(in.nextBoolean()) : in.nextString();
+            String shared = strings.putIfAbsent(value, value);
+            return shared == null ? value : shared;
+        }
     }
 
 }
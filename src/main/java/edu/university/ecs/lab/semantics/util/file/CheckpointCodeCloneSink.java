@@ -0,0 +1,174 @@
+package edu.university.ecs.lab.semantics.util.file;
+
+import edu.university.ecs.lab.semantics.entity.MsCodeClone;
+import edu.university.ecs.lab.semantics.entity.MsFlowEntity;
+import edu.university.ecs.lab.semantics.util.MsCache;
+import edu.university.ecs.lab.semantics.util.factory.CodeCloneSink;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * writes the code clones of every module pair to its own shard file once the pair is done,
+ * and replays finished shards instead of scoring their pair again
+ *
+ * a shard is a count followed by one record per clone: the two flow ids, the scores and the clone type flags
+ */
+public class CheckpointCodeCloneSink implements CodeCloneSink {
+
+    private final PipelineCheckpoint checkpoint;
+    private final CodeCloneSink downstream;
+    private final List<MsCodeClone> modulePairClones = new ArrayList<>();
+    private MsFlowEntity[] flowsById;
+
+    public CheckpointCodeCloneSink(PipelineCheckpoint checkpoint, CodeCloneSink downstream) {
+        this.checkpoint = checkpoint;
+        this.downstream = downstream;
+    }
+
+    @Override
+    public boolean beginModulePair(int i, int j) {
+        modulePairClones.clear();
+        boolean score = downstream.beginModulePair(i, j);
+        Path shard = checkpoint.shard(i, j);
+        if (score && Files.exists(shard)) {
+            List<MsCodeClone> replayed = readShard(shard);
+            if (replayed != null) {
+                replayed.forEach(downstream::accept);
+                downstream.endModulePair(i, j);
+                return false;
+            }
+        }
+        return score;
+    }
+
+    @Override
+    public void accept(MsCodeClone msCodeClone) {
+        modulePairClones.add(msCodeClone);
+        downstream.accept(msCodeClone);
+    }
+
+    @Override
+    public void endModulePair(int i, int j) {
+        writeShard(checkpoint.shard(i, j), modulePairClones);
+        modulePairClones.clear();
+        downstream.endModulePair(i, j);
+    }
+
+    @Override
+    public void close() {
+        downstream.close();
+    }
+
+    private void writeShard(Path shard, List<MsCodeClone> msCodeClones) {
+        Path tmp = shard.resolveSibling(shard.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(msCodeClones.size());
+            for (MsCodeClone msCodeClone : msCodeClones) {
+                writeCodeClone(out, msCodeClone);
+            }
+        } catch (IOException e) {
+            System.err.format("IOException: %s%n", e);
+            return;
+        }
+        try {
+            Files.move(tmp, shard, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            System.err.format("IOException: %s%n", e);
+        }
+    }
+
+    /**
+     * @return the clones of the shard, or null if it cannot be read, the pair is scored again then
+     */
+    private List<MsCodeClone> readShard(Path shard) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(shard)))) {
+            int size = in.readInt();
+            List<MsCodeClone> msCodeClones = new ArrayList<>(size);
+            for (int k = 0; k < size; k++) {
+                msCodeClones.add(readCodeClone(in));
+            }
+            return msCodeClones;
+        } catch (EOFException | ArrayIndexOutOfBoundsException e) {
+            System.err.println("incomplete checkpoint " + shard.getFileName() + ", scoring the module pair again");
+            return null;
+        } catch (IOException e) {
+            System.err.format("IOException: %s%n", e);
+            return null;
+        }
+    }
+
+    private static void writeCodeClone(DataOutputStream out, MsCodeClone msCodeClone) throws IOException {
+        out.writeInt(msCodeClone.getAId());
+        out.writeInt(msCodeClone.getBId());
+        out.writeDouble(msCodeClone.getSimilarityController());
+        out.writeDouble(msCodeClone.getSimilarityService());
+        out.writeDouble(msCodeClone.getSimilarityRepository());
+        out.writeDouble(msCodeClone.getSimilarityRestCalls());
+        out.writeDouble(msCodeClone.getGlobalSimilarity());
+        out.writeDouble(msCodeClone.getCtrMethodNameSimilarity());
+        out.writeDouble(msCodeClone.getCtrArgumentsLiteralSimilarity());
+        out.writeDouble(msCodeClone.getCtrReturnTypeLiteralSimilarity());
+        out.writeDouble(msCodeClone.getCtrHttpMethodSimilarity());
+        out.writeDouble(msCodeClone.getSrvMethodNameSimilarity());
+        out.writeDouble(msCodeClone.getSrvArgumentsLiteralSimilarity());
+        out.writeDouble(msCodeClone.getSrvReturnTypeLiteralSimilarity());
+        out.writeDouble(msCodeClone.getRepOperationTypeSimilarity());
+        out.writeDouble(msCodeClone.getRepArgumentsLiteralSimilarity());
+        out.writeDouble(msCodeClone.getRepReturnTypeLiteralSimilarity());
+        out.writeDouble(msCodeClone.getCalHttpMethodSimilarity());
+        out.writeDouble(msCodeClone.getCalURLSimilarity());
+        out.writeDouble(msCodeClone.getCalArgumentsLiteralSimilarity());
+        out.writeDouble(msCodeClone.getCalReturnTypeLiteralSimilarity());
+        out.writeByte((msCodeClone.isTypeA() ? 1 : 0) | (msCodeClone.isTypeB() ? 2 : 0) | (msCodeClone.isTypeC() ? 4 : 0));
+    }
+
+    private MsCodeClone readCodeClone(DataInputStream in) throws IOException {
+        MsCodeClone msCodeClone = new MsCodeClone();
+        msCodeClone.setA(flow(in.readInt()));
+        msCodeClone.setB(flow(in.readInt()));
+        msCodeClone.setSimilarityController(in.readDouble());
+        msCodeClone.setSimilarityService(in.readDouble());
+        msCodeClone.setSimilarityRepository(in.readDouble());
+        msCodeClone.setSimilarityRestCalls(in.readDouble());
+        msCodeClone.setGlobalSimilarity(in.readDouble());
+        msCodeClone.setCtrMethodNameSimilarity(in.readDouble());
+        msCodeClone.setCtrArgumentsLiteralSimilarity(in.readDouble());
+        msCodeClone.setCtrReturnTypeLiteralSimilarity(in.readDouble());
+        msCodeClone.setCtrHttpMethodSimilarity(in.readDouble());
+        msCodeClone.setSrvMethodNameSimilarity(in.readDouble());
+        msCodeClone.setSrvArgumentsLiteralSimilarity(in.readDouble());
+        msCodeClone.setSrvReturnTypeLiteralSimilarity(in.readDouble());
+        msCodeClone.setRepOperationTypeSimilarity(in.readDouble());
+        msCodeClone.setRepArgumentsLiteralSimilarity(in.readDouble());
+        msCodeClone.setRepReturnTypeLiteralSimilarity(in.readDouble());
+        msCodeClone.setCalHttpMethodSimilarity(in.readDouble());
+        msCodeClone.setCalURLSimilarity(in.readDouble());
+        msCodeClone.setCalArgumentsLiteralSimilarity(in.readDouble());
+        msCodeClone.setCalReturnTypeLiteralSimilarity(in.readDouble());
+        int types = in.readByte();
+        msCodeClone.setTypeA((types & 1) != 0);
+        msCodeClone.setTypeB((types & 2) != 0);
+        msCodeClone.setTypeC((types & 4) != 0);
+        return msCodeClone;
+    }
+
+    private MsFlowEntity flow(int id) {
+        if (flowsById == null) {
+            flowsById = new MsFlowEntity[MsCache.msFlows.size()];
+            for (MsFlowEntity msFlowEntity : MsCache.msFlows) {
+                flowsById[msFlowEntity.getId()] = msFlowEntity;
+            }
+        }
+        return id < 0 ? null : flowsById[id];
+    }
+}
@@ -0,0 +1,209 @@
+package edu.university.ecs.lab.semantics.util.file;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * streaming CSV writer, rows are assembled in one reused buffer and collected into chunks,
+ * a full chunk is written (and compressed, see OutputFiles) on the I/O executor while the next one fills up,
+ * the two chunk arrays take turns
+ *
+ * doubles are formatted like Double.toString without creating a String per cell, text cells have line breaks
+ * replaced by a space and are quoted if they contain a comma or a quote
+ */
+public class CsvWriter implements Closeable {
+
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+    private static final int CHUNK_SIZE = 1 << 16;
+
+    private final Writer writer;
+    private final StringBuilder row = new StringBuilder(256);
+    private char[] chunk = new char[CHUNK_SIZE];
+    // the array of the chunk in flight, it is filled next once that write is done
+    private char[] spare;
+    private int chunkLength = 0;
+    // the write of the previous chunk, at most one is in flight
+    private CompletableFuture<Void> pending = CompletableFuture.completedFuture(null);
+    private boolean firstCell = true;
+
+    public CsvWriter(String path, String fileName) throws IOException {
+        this.writer = OutputFiles.newWriter(path, fileName + ".csv");
+    }
+
+    public CsvWriter cell(String value) {
+        separator();
+        if (value == null) {
+            row.append("null");
+            return this;
+        }
+        boolean quote = needsQuote(value);
+        if (quote) {
+            row.append('"');
+        }
+        appendEscaped(value, quote);
+        if (quote) {
+            row.append('"');
+        }
+        return this;
+    }
+
+    /**
+     * writes prefix + "." + suffix as one cell without concatenating them first
+     */
+    public CsvWriter cell(String prefix, String suffix) {
+        separator();
+        boolean quote = needsQuote(prefix) || needsQuote(suffix);
+        if (quote) {
+            row.append('"');
+        }
+        appendEscaped(prefix, quote);
+        row.append('.');
+        appendEscaped(suffix, quote);
+        if (quote) {
+            row.append('"');
+        }
+        return this;
+    }
+
+    public CsvWriter cell(double value) {
+        separator();
+        // the scores are mostly 0, 1 or -1
+        if (value == 0.0 && Double.doubleToRawLongBits(value) == 0L) {
+            row.append("0.0");
+        } else if (value == 1.0) {
+            row.append("1.0");
+        } else if (value == -1.0) {
+            row.append("-1.0");
+        } else {
+            row.append(value);
+        }
+        return this;
+    }
+
+    public CsvWriter cell(int value) {
+        separator();
+        row.append(value);
+        return this;
+    }
+
+    public void endRow() throws IOException {
+        row.append(LINE_SEPARATOR);
+        int length = row.length();
+        if (chunkLength + length > chunk.length) {
+            submitChunk();
+            if (chunk.length < length) {
+                chunk = new char[length];
+            }
+        }
+        row.getChars(0, length, chunk, chunkLength);
+        chunkLength += length;
+        row.setLength(0);
+        firstCell = true;
+    }
+
+    public void header(String... columns) throws IOException {
+        for (String column : columns) {
+            cell(column);
+        }
+        endRow();
+    }
+
+    /**
+     * writes the rows so far through to the file
+     */
+    public void flush() throws IOException {
+        submitChunk();
+        awaitPending();
+        writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            submitChunk();
+            awaitPending();
+        } finally {
+            writer.close();
+        }
+    }
+
+    private void submitChunk() throws IOException {
+        awaitPending();
+        if (chunkLength == 0) {
+            return;
+        }
+        char[] full = chunk;
+        int length = chunkLength;
+        pending = CompletableFuture.runAsync(() -> {
+            try {
+                writer.write(full, 0, length);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, OutputFiles.executor());
+        chunk = spare != null ? spare : new char[CHUNK_SIZE];
+        spare = full;
+        chunkLength = 0;
+    }
+
+    private void awaitPending() throws IOException {
+        try {
+            pending.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            }
+            throw e;
+        }
+    }
+
+    private static boolean needsQuote(String value) {
+        if (value == null) {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\'') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void appendEscaped(String value, boolean quote) {
+        if (value == null) {
+            row.append("null");
+            return;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (isLineBreak(c)) {
+                // a \r\n pair is a single line break
+                if (c == '\r' && i + 1 < value.length() && value.charAt(i + 1) == '\n') {
+                    i++;
+                }
+                row.append(' ');
+            } else if (c == '"' && quote) {
+                row.append("\"\"");
+            } else {
+                row.append(c);
+            }
+        }
+    }
+
+    // the characters matched by the regex \R
+    private static boolean isLineBreak(char c) {
+        return c == '\n' || c == '\r' || c == '\u000B' || c == '\f' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+
+    private void separator() {
+        if (!firstCell) {
+            row.append(',');
+        }
+        firstCell = false;
+    }
+}
@@ -0,0 +1,680 @@
+package edu.university.ecs.lab.semantics.util.file;
+
+import edu.university.ecs.lab.semantics.entity.MsFlowEntity;
+import edu.university.ecs.lab.semantics.entity.graph.*;
+import edu.university.ecs.lab.semantics.util.MsCache;
+import edu.university.ecs.lab.semantics.util.entityextraction.Annotation;
+import edu.university.ecs.lab.semantics.util.entityextraction.EntityField;
+import edu.university.ecs.lab.semantics.util.entitysimilarity.Entity;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * binary snapshot of the extracted model (classes, methods, calls, fields, rest calls, flows, entities and modules)
+ *
+ * every table is stored column by column: strings as indexes into a string table at the end of the file,
+ * numbers and flags as int columns, references to other tables as row indexes, so shared objects stay shared
+ * after a reload. the file is read through a memory mapping, which lets re-scoring runs skip parsing entirely
+ */
+public class ModelSnapshot {
+
+    public static final String FILE_NAME = "model-snapshot.bin";
+
+    private static final int MAGIC = 0x4D534D53;
+    private static final int VERSION = 2;
+    private static final int NULL = -1;
+
+    /**
+     * writes the model currently held by the MsCache
+     * @param path the output directory
+     * @param sutPath the analyzed system, a snapshot is only loaded again for the same system
+     */
+    public static void persist(String path, String sutPath) {
+        Path file = Paths.get(path, FILE_NAME);
+        Path tmp = Paths.get(path, FILE_NAME + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+            new Writer(out).write(sutPath);
+        } catch (IOException e) {
+            System.err.format("IOException: %s%n", e);
+            return;
+        }
+        try {
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            System.err.format("IOException: %s%n", e);
+        }
+    }
+
+    /**
+     * replaces the model in the MsCache with the persisted one
+     * @return false if there is no snapshot for this system and version, the MsCache is left untouched then
+     */
+    public static boolean load(String path, String sutPath) {
+        Path file = Paths.get(path, FILE_NAME);
+        if (!Files.exists(file)) {
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                return false;
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new Reader(buffer).read(sutPath);
+        } catch (IOException e) {
+            System.err.format("IOException: %s%n", e);
+            return false;
+        }
+    }
+
+    private static class Writer {
+
+        private final DataOutputStream out;
+        private final Map<String, Integer> strings = new HashMap<>();
+        private final List<String> stringTable = new ArrayList<>();
+
+        private Writer(DataOutputStream out) {
+            this.out = out;
+        }
+
+        private void write(String sutPath) throws IOException {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(string(sutPath));
+
+            List<MsClass> classes = orEmpty(MsCache.msClassList);
+            List<MsMethod> methods = orEmpty(MsCache.msMethodList);
+            List<MsMethodCall> methodCalls = orEmpty(MsCache.msMethodCallList);
+            List<MsRestCall> restCalls = orEmpty(MsCache.msRestCallList);
+            List<MsField> fields = orEmpty(MsCache.msFieldList);
+
+            // MsId instances are shared by everything parsed from the same file
+            Map<Object, Integer> msIds = new IdentityHashMap<>();
+            List<MsId> msIdRows = new ArrayList<>();
+            for (List<?> rows : List.of(classes, methods, methodCalls, restCalls, fields)) {
+                for (Object row : rows) {
+                    MsId msId = msIdOf(row);
+                    if (msId != null && !msIds.containsKey(msId)) {
+                        msIds.put(msId, msIdRows.size());
+                        msIdRows.add(msId);
+                    }
+                }
+            }
+            out.writeInt(msIdRows.size());
+            stringColumn(msIdRows, MsId::getPath);
+            stringColumn(msIdRows, MsId::getDirectoryName);
+
+            out.writeInt(classes.size());
+            refColumn(classes, MsClass::getMsId, msIds);
+            stringColumn(classes, MsClass::getClassId);
+            stringColumn(classes, MsClass::getPackageName);
+            stringColumn(classes, MsClass::getClassName);
+            intColumn(classes, n -> n.getRole() == null ? NULL : n.getRole().ordinal());
+            List<String> fieldNames = listColumn(classes, MsClass::getFieldNames);
+            stringColumn(fieldNames, Function.identity());
+
+            out.writeInt(methods.size());
+            refColumn(methods, MsMethod::getMsId, msIds);
+            stringColumn(methods, MsMethod::getProtection);
+            stringColumn(methods, MsMethod::getReturnType);
+            stringColumn(methods, MsMethod::getMethodName);
+            stringColumn(methods, MsMethod::getClassName);
+            stringColumn(methods, MsMethod::getPackageName);
+            stringColumn(methods, MsMethod::getMethodId);
+            stringColumn(methods, MsMethod::getClassId);
+            intColumn(methods, MsMethod::getLine);
+            stringColumn(methods, MsMethod::getMapping);
+            stringColumn(methods, MsMethod::getMappingPath);
+            List<MsArgument> arguments = listColumn(methods, MsMethod::getMsArgumentList);
+            stringColumn(arguments, MsArgument::getReturnType);
+            List<MsAnnotation> annotations = listColumn(methods, MsMethod::getMsAnnotations);
+            intColumn(annotations, n -> n.isHttpAnnotation() ? 1 : 0);
+            stringColumn(annotations, MsAnnotation::getAnnotationName);
+            stringColumn(annotations, MsAnnotation::getKey);
+            stringColumn(annotations, MsAnnotation::getValue);
+
+            out.writeInt(methodCalls.size());
+            methodCallColumns(methodCalls, msIds);
+
+            out.writeInt(restCalls.size());
+            methodCallColumns(restCalls, msIds);
+            stringColumn(restCalls, MsRestCall::getApi);
+            stringColumn(restCalls, MsRestCall::getHttpMethod);
+            stringColumn(restCalls, MsRestCall::getReturnType);
+
+            out.writeInt(fields.size());
+            refColumn(fields, MsField::getMsId, msIds);
+            stringColumn(fields, MsField::getFieldClass);
+            stringColumn(fields, MsField::getFieldVariable);
+            intColumn(fields, MsField::getLine);
+            stringColumn(fields, MsField::getParentMethodName);
+            stringColumn(fields, MsField::getParentClassName);
+            stringColumn(fields, MsField::getParentPackageName);
+            intColumn(fields, n -> n.getParentMethod() == null ? 0 : 1);
+            stringColumn(fields, n -> n.getParentMethod() == null ? null : n.getParentMethod().getParentMethodName());
+            stringColumn(fields, n -> n.getParentMethod() == null ? null : n.getParentMethod().getParentClassName());
+            stringColumn(fields, n -> n.getParentMethod() == null ? null : n.getParentMethod().getParentPackageName());
+
+            writeNullableSize(MsCache.modules);
+            stringColumn(orEmpty(MsCache.modules), Function.identity());
+
+            List<MsFlowEntity> flows = orEmpty(MsCache.msFlows);
+            Map<Object, Integer> classIndex = index(classes);
+            Map<Object, Integer> methodIndex = index(methods);
+            Map<Object, Integer> methodCallIndex = index(methodCalls);
+            Map<Object, Integer> fieldIndex = index(fields);
+            writeNullableSize(MsCache.msFlows);
+            intColumn(flows, MsFlowEntity::getId);
+            refColumn(flows, MsFlowEntity::getMsController, classIndex);
+            refColumn(flows, MsFlowEntity::getMsControllerMethod, methodIndex);
+            refColumn(flows, MsFlowEntity::getMsServiceMethodCall, methodCallIndex);
+            refColumn(flows, MsFlowEntity::getMsControllerServiceField, fieldIndex);
+            refColumn(flows, MsFlowEntity::getMsService, classIndex);
+            refColumn(flows, MsFlowEntity::getMsServiceMethod, methodIndex);
+            refColumn(flows, MsFlowEntity::getMsRepositoryMethodCall, methodCallIndex);
+            refColumn(flows, MsFlowEntity::getMsServiceRepositoryField, fieldIndex);
+            refColumn(flows, MsFlowEntity::getMsRepository, classIndex);
+            refColumn(flows, MsFlowEntity::getMsRepositoryMethod, methodIndex);
+            List<MsRestCall> flowRestCalls = listColumn(flows, MsFlowEntity::getMsRestCalls);
+            refColumn(flowRestCalls, Function.identity(), index(restCalls));
+
+            Map<String, Entity> mappedEntities = MsCache.mappedEntities;
+            List<Map.Entry<String, Entity>> entries = mappedEntities == null
+                    ? Collections.emptyList()
+                    : new ArrayList<>(mappedEntities.entrySet());
+            Map<Object, Integer> entities = new IdentityHashMap<>();
+            List<Entity> entityRows = new ArrayList<>();
+            for (Map.Entry<String, Entity> entry : entries) {
+                if (entry.getValue() != null && !entities.containsKey(entry.getValue())) {
+                    entities.put(entry.getValue(), entityRows.size());
+                    entityRows.add(entry.getValue());
+                }
+            }
+            out.writeInt(entityRows.size());
+            stringColumn(entityRows, Entity::getEntityName);
+            List<EntityField> entityFields = listColumn(entityRows, Entity::getFields);
+            stringColumn(entityFields, EntityField::getName);
+            stringColumn(entityFields, EntityField::getType);
+            intColumn(entityFields, n -> n.isReference() ? 1 : 0);
+            stringColumn(entityFields, EntityField::getEntityRefName);
+            intColumn(entityFields, n -> n.isCollection() ? 1 : 0);
+            List<Annotation> entityAnnotations = listColumn(entityFields, EntityField::getAnnotations);
+            stringColumn(entityAnnotations, Annotation::getName);
+            stringColumn(entityAnnotations, Annotation::getStringValue);
+            intColumn(entityAnnotations, n -> n.getIntValue() == null ? 0 : 1);
+            intColumn(entityAnnotations, n -> n.getIntValue() == null ? 0 : n.getIntValue());
+            writeNullableSize(mappedEntities);
+            stringColumn(entries, Map.Entry::getKey);
+            refColumn(entries, Map.Entry::getValue, entities);
+
+            // the string table goes last, its offset is the final long of the file
+            long stringTableOffset = out.size();
+            out.writeInt(stringTable.size());
+            for (String s : stringTable) {
+                byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+            out.writeLong(stringTableOffset);
+        }
+
+        private <T extends MsMethodCall> void methodCallColumns(List<T> rows, Map<Object, Integer> msIds) throws IOException {
+            refColumn(rows, MsMethodCall::getMsId, msIds);
+            stringColumn(rows, MsMethodCall::getParentPackageName);
+            stringColumn(rows, MsMethodCall::getParentClassName);
+            stringColumn(rows, MsMethodCall::getParentMethodName);
+            stringColumn(rows, MsMethodCall::getParentClassId);
+            intColumn(rows, MsMethodCall::getLineNumber);
+            stringColumn(rows, MsMethodCall::getCalledMethodName);
+            stringColumn(rows, MsMethodCall::getCalledServiceId);
+            stringColumn(rows, MsMethodCall::getStatementDeclaration);
+        }
+
+        private <T> void stringColumn(List<T> rows, Function<T, String> column) throws IOException {
+            for (T row : rows) {
+                out.writeInt(string(column.apply(row)));
+            }
+        }
+
+        private <T> void intColumn(List<T> rows, ToIntFunction<T> column) throws IOException {
+            for (T row : rows) {
+                out.writeInt(column.applyAsInt(row));
+            }
+        }
+
+        private <T> void refColumn(List<T> rows, Function<T, ?> column, Map<Object, Integer> index) throws IOException {
+            for (T row : rows) {
+                Object target = column.apply(row);
+                out.writeInt(target == null ? NULL : index.getOrDefault(target, NULL));
+            }
+        }
+
+        /**
+         * writes the size of every row's collection (-1 for null) and returns the elements of all of them in order
+         */
+        private <T, E> List<E> listColumn(List<T> rows, Function<T, ? extends Collection<E>> column) throws IOException {
+            List<E> elements = new ArrayList<>();
+            for (T row : rows) {
+                Collection<E> values = column.apply(row);
+                out.writeInt(values == null ? NULL : values.size());
+                if (values != null) {
+                    elements.addAll(values);
+                }
+            }
+            return elements;
+        }
+
+        private void writeNullableSize(Object collection) throws IOException {
+            if (collection == null) {
+                out.writeInt(NULL);
+            } else if (collection instanceof Map) {
+                out.writeInt(((Map<?, ?>) collection).size());
+            } else {
+                out.writeInt(((Collection<?>) collection).size());
+            }
+        }
+
+        private int string(String s) {
+            if (s == null) {
+                return NULL;
+            }
+            Integer index = strings.get(s);
+            if (index == null) {
+                index = stringTable.size();
+                strings.put(s, index);
+                stringTable.add(s);
+            }
+            return index;
+        }
+
+        private static <T> List<T> orEmpty(List<T> list) {
+            return list == null ? Collections.emptyList() : list;
+        }
+
+        private static Map<Object, Integer> index(List<?> rows) {
+            Map<Object, Integer> index = new IdentityHashMap<>(rows.size() * 2);
+            for (int i = 0; i < rows.size(); i++) {
+                index.putIfAbsent(rows.get(i), i);
+            }
+            return index;
+        }
+
+        private static MsId msIdOf(Object row) {
+            if (row instanceof MsClass) {
+                return ((MsClass) row).getMsId();
+            } else if (row instanceof MsMethod) {
+                return ((MsMethod) row).getMsId();
+            } else if (row instanceof MsMethodCall) {
+                return ((MsMethodCall) row).getMsId();
+            } else if (row instanceof MsField) {
+                return ((MsField) row).getMsId();
+            }
+            return null;
+        }
+    }
+
+    private static class Reader {
+
+        private final ByteBuffer buffer;
+        private String[] strings;
+
+        private Reader(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        private boolean read(String sutPath) {
+            if (buffer.limit() < 12 + Long.BYTES || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                return false;
+            }
+            readStringTable();
+            String snapshotSutPath = string(buffer.getInt());
+            if (snapshotSutPath == null || !snapshotSutPath.equals(sutPath)) {
+                return false;
+            }
+
+            int n = buffer.getInt();
+            String[] paths = stringColumn(n);
+            String[] directoryNames = stringColumn(n);
+            MsId[] msIds = new MsId[n];
+            for (int i = 0; i < n; i++) {
+                msIds[i] = new MsId(paths[i]);
+                msIds[i].setDirectoryName(directoryNames[i]);
+            }
+
+            n = buffer.getInt();
+            int[] msId = intColumn(n);
+            String[] classId = stringColumn(n);
+            String[] packageName = stringColumn(n);
+            String[] className = stringColumn(n);
+            int[] role = intColumn(n);
+            int[] fieldNameCounts = intColumn(n);
+            String[] fieldNames = stringColumn(total(fieldNameCounts));
+            MsClassRoles[] roles = MsClassRoles.values();
+            List<MsClass> classes = new ArrayList<>(n);
+            for (int i = 0, f = 0; i < n; i++) {
+                MsClass msClass = new MsClass();
+                msClass.setMsId(ref(msIds, msId[i]));
+                msClass.setClassId(classId[i]);
+                msClass.setPackageName(packageName[i]);
+                msClass.setClassName(className[i]);
+                msClass.setRole(role[i] == NULL ? null : roles[role[i]]);
+                if (fieldNameCounts[i] != NULL) {
+                    List<String> names = new ArrayList<>(fieldNameCounts[i]);
+                    for (int k = 0; k < fieldNameCounts[i]; k++) {
+                        names.add(fieldNames[f++]);
+                    }
+                    msClass.setFieldNames(names);
+                }
+                classes.add(msClass);
+            }
+
+            n = buffer.getInt();
+            msId = intColumn(n);
+            String[] protection = stringColumn(n);
+            String[] returnType = stringColumn(n);
+            String[] methodName = stringColumn(n);
+            className = stringColumn(n);
+            packageName = stringColumn(n);
+            String[] methodId = stringColumn(n);
+            classId = stringColumn(n);
+            int[] line = intColumn(n);
+            String[] mapping = stringColumn(n);
+            String[] mappingPath = stringColumn(n);
+            int[] argumentCounts = intColumn(n);
+            String[] argumentTypes = stringColumn(total(argumentCounts));
+            int[] annotationCounts = intColumn(n);
+            int a = total(annotationCounts);
+            int[] isHttpAnnotation = intColumn(a);
+            String[] annotationName = stringColumn(a);
+            String[] annotationKey = stringColumn(a);
+            String[] annotationValue = stringColumn(a);
+            List<MsMethod> methods = new ArrayList<>(n);
+            for (int i = 0, g = 0, h = 0; i < n; i++) {
+                MsMethod msMethod = new MsMethod();
+                msMethod.setMsId(ref(msIds, msId[i]));
+                msMethod.setProtection(protection[i]);
+                msMethod.setReturnType(returnType[i]);
+                msMethod.setMethodName(methodName[i]);
+                msMethod.setClassName(className[i]);
+                msMethod.setPackageName(packageName[i]);
+                msMethod.setMethodId(methodId[i]);
+                msMethod.setClassId(classId[i]);
+                msMethod.setLine(line[i]);
+                msMethod.setMapping(mapping[i]);
+                msMethod.setMappingPath(mappingPath[i]);
+                if (argumentCounts[i] == NULL) {
+                    msMethod.setMsArgumentList(null);
+                }
+                for (int k = 0; k < argumentCounts[i]; k++) {
+                    msMethod.addArgument(new MsArgument(argumentTypes[g++]));
+                }
+                if (annotationCounts[i] != NULL) {
+                    List<MsAnnotation> msAnnotations = new ArrayList<>(annotationCounts[i]);
+                    for (int k = 0; k < annotationCounts[i]; k++, h++) {
+                        MsAnnotation msAnnotation = new MsAnnotation();
+                        msAnnotation.setHttpAnnotation(isHttpAnnotation[h] == 1);
+                        msAnnotation.setAnnotationName(annotationName[h]);
+                        msAnnotation.setKey(annotationKey[h]);
+                        msAnnotation.setValue(annotationValue[h]);
+                        msAnnotations.add(msAnnotation);
+                    }
+                    msMethod.setMsAnnotations(msAnnotations);
+                }
+                methods.add(msMethod);
+            }
+
+            n = buffer.getInt();
+            List<MsMethodCall> methodCalls = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                methodCalls.add(new MsMethodCall());
+            }
+            readMethodCallColumns(methodCalls, msIds);
+
+            n = buffer.getInt();
+            List<MsRestCall> restCalls = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                restCalls.add(new MsRestCall());
+            }
+            readMethodCallColumns(restCalls, msIds);
+            String[] api = stringColumn(n);
+            String[] httpMethod = stringColumn(n);
+            returnType = stringColumn(n);
+            for (int i = 0; i < n; i++) {
+                MsRestCall msRestCall = restCalls.get(i);
+                msRestCall.setApi(api[i]);
+                msRestCall.setHttpMethod(httpMethod[i]);
+                msRestCall.setReturnType(returnType[i]);
+            }
+
+            n = buffer.getInt();
+            msId = intColumn(n);
+            String[] fieldClass = stringColumn(n);
+            String[] fieldVariable = stringColumn(n);
+            line = intColumn(n);
+            String[] parentMethodName = stringColumn(n);
+            String[] parentClassName = stringColumn(n);
+            String[] parentPackageName = stringColumn(n);
+            int[] hasParentMethod = intColumn(n);
+            String[] ownParentMethodName = stringColumn(n);
+            String[] ownParentClassName = stringColumn(n);
+            String[] ownParentPackageName = stringColumn(n);
+            List<MsField> fields = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                MsField msField = new MsField();
+                msField.setMsId(ref(msIds, msId[i]));
+                msField.setFieldClass(fieldClass[i]);
+                msField.setFieldVariable(fieldVariable[i]);
+                msField.setLine(line[i]);
+                msField.setParentMethodName(parentMethodName[i]);
+                msField.setParentClassName(parentClassName[i]);
+                msField.setParentPackageName(parentPackageName[i]);
+                if (hasParentMethod[i] == 1) {
+                    MsParentMethod msParentMethod = new MsParentMethod();
+                    msParentMethod.setParentMethodName(ownParentMethodName[i]);
+                    msParentMethod.setParentClassName(ownParentClassName[i]);
+                    msParentMethod.setParentPackageName(ownParentPackageName[i]);
+                    msField.setParentMethod(msParentMethod);
+                }
+                fields.add(msField);
+            }
+
+            n = buffer.getInt();
+            String[] modules = stringColumn(Math.max(n, 0));
+            List<String> moduleList = n == NULL ? null : new ArrayList<>(Arrays.asList(modules));
+
+            n = buffer.getInt();
+            List<MsFlowEntity> flows = null;
+            if (n != NULL) {
+                int[] id = intColumn(n);
+                int[] controller = intColumn(n);
+                int[] controllerMethod = intColumn(n);
+                int[] serviceMethodCall = intColumn(n);
+                int[] controllerServiceField = intColumn(n);
+                int[] service = intColumn(n);
+                int[] serviceMethod = intColumn(n);
+                int[] repositoryMethodCall = intColumn(n);
+                int[] serviceRepositoryField = intColumn(n);
+                int[] repository = intColumn(n);
+                int[] repositoryMethod = intColumn(n);
+                int[] restCallCounts = intColumn(n);
+                int[] restCallRefs = intColumn(total(restCallCounts));
+                flows = new ArrayList<>(n);
+                for (int i = 0, r = 0; i < n; i++) {
+                    MsFlowEntity flow = new MsFlowEntity(ref(classes, controller[i]), ref(methods, controllerMethod[i]));
+                    flow.setId(id[i]);
+                    flow.setMsServiceMethodCall(ref(methodCalls, serviceMethodCall[i]));
+                    flow.setMsControllerServiceField(ref(fields, controllerServiceField[i]));
+                    flow.setMsService(ref(classes, service[i]));
+                    flow.setMsServiceMethod(ref(methods, serviceMethod[i]));
+                    flow.setMsRepositoryMethodCall(ref(methodCalls, repositoryMethodCall[i]));
+                    flow.setMsServiceRepositoryField(ref(fields, serviceRepositoryField[i]));
+                    flow.setMsRepository(ref(classes, repository[i]));
+                    flow.setMsRepositoryMethod(ref(methods, repositoryMethod[i]));
+                    if (restCallCounts[i] != NULL) {
+                        List<MsRestCall> flowRestCalls = new ArrayList<>(restCallCounts[i]);
+                        for (int k = 0; k < restCallCounts[i]; k++) {
+                            flowRestCalls.add(ref(restCalls, restCallRefs[r++]));
+                        }
+                        flow.setMsRestCalls(flowRestCalls);
+                    }
+                    flows.add(flow);
+                }
+            }
+
+            n = buffer.getInt();
+            String[] entityName = stringColumn(n);
+            int[] entityFieldCounts = intColumn(n);
+            int e = total(entityFieldCounts);
+            String[] fieldName = stringColumn(e);
+            String[] fieldType = stringColumn(e);
+            int[] isReference = intColumn(e);
+            String[] entityRefName = stringColumn(e);
+            int[] isCollection = intColumn(e);
+            int[] entityAnnotationCounts = intColumn(e);
+            int ea = total(entityAnnotationCounts);
+            String[] entityAnnotationName = stringColumn(ea);
+            String[] stringValue = stringColumn(ea);
+            int[] hasIntValue = intColumn(ea);
+            int[] intValue = intColumn(ea);
+            List<Entity> entities = new ArrayList<>(n);
+            for (int i = 0, f = 0, h = 0; i < n; i++) {
+                Entity entity = new Entity();
+                entity.setEntityName(entityName[i]);
+                if (entityFieldCounts[i] == NULL) {
+                    entity.setFields(null);
+                }
+                for (int k = 0; k < entityFieldCounts[i]; k++, f++) {
+                    EntityField entityField = new EntityField();
+                    entityField.setName(fieldName[f]);
+                    entityField.setType(fieldType[f]);
+                    entityField.setReference(isReference[f] == 1);
+                    entityField.setEntityRefName(entityRefName[f]);
+                    entityField.setCollection(isCollection[f] == 1);
+                    if (entityAnnotationCounts[f] == NULL) {
+                        entityField.setAnnotations(null);
+                    }
+                    for (int m = 0; m < entityAnnotationCounts[f]; m++, h++) {
+                        entityField.getAnnotations().add(new Annotation(entityAnnotationName[h], stringValue[h],
+                                hasIntValue[h] == 1 ? intValue[h] : null));
+                    }
+                    entity.getFields().add(entityField);
+                }
+                entities.add(entity);
+            }
+            n = buffer.getInt();
+            Map<String, Entity> mappedEntities = null;
+            if (n != NULL) {
+                String[] keys = stringColumn(n);
+                int[] entityRefs = intColumn(n);
+                mappedEntities = new LinkedHashMap<>(n * 2);
+                for (int i = 0; i < n; i++) {
+                    mappedEntities.put(keys[i], ref(entities, entityRefs[i]));
+                }
+            }
+
+            MsCache.msClassList = classes;
+            MsCache.msMethodList = methods;
+            MsCache.msMethodCallList = methodCalls;
+            MsCache.msRestCallList = restCalls;
+            MsCache.msFieldList = fields;
+            MsCache.modules = moduleList;
+            MsCache.msFlows = flows;
+            MsCache.mappedEntities = mappedEntities;
+            return true;
+        }
+
+        private <T extends MsMethodCall> void readMethodCallColumns(List<T> rows, MsId[] msIds) {
+            int n = rows.size();
+            int[] msId = intColumn(n);
+            String[] parentPackageName = stringColumn(n);
+            String[] parentClassName = stringColumn(n);
+            String[] parentMethodName = stringColumn(n);
+            String[] parentClassId = stringColumn(n);
+            int[] lineNumber = intColumn(n);
+            String[] calledMethodName = stringColumn(n);
+            String[] calledServiceId = stringColumn(n);
+            String[] statementDeclaration = stringColumn(n);
+            for (int i = 0; i < n; i++) {
+                T msMethodCall = rows.get(i);
+                msMethodCall.setMsId(ref(msIds, msId[i]));
+                msMethodCall.setParentPackageName(parentPackageName[i]);
+                msMethodCall.setParentClassName(parentClassName[i]);
+                msMethodCall.setParentMethodName(parentMethodName[i]);
+                msMethodCall.setParentClassId(parentClassId[i]);
+                msMethodCall.setLineNumber(lineNumber[i]);
+                msMethodCall.setCalledMethodName(calledMethodName[i]);
+                msMethodCall.setCalledServiceId(calledServiceId[i]);
+                msMethodCall.setStatementDeclaration(statementDeclaration[i]);
+            }
+        }
+
+        private void readStringTable() {
+            int start = buffer.position();
+            buffer.position((int) buffer.getLong(buffer.limit() - Long.BYTES));
+            strings = new String[buffer.getInt()];
+            for (int i = 0; i < strings.length; i++) {
+                byte[] bytes = new byte[buffer.getInt()];
+                buffer.get(bytes);
+                strings[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+            buffer.position(start);
+        }
+
+        private int[] intColumn(int n) {
+            int[] column = new int[n];
+            buffer.asIntBuffer().get(column);
+            buffer.position(buffer.position() + n * Integer.BYTES);
+            return column;
+        }
+
+        private String[] stringColumn(int n) {
+            int[] refs = intColumn(n);
+            String[] column = new String[n];
+            for (int i = 0; i < n; i++) {
+                column[i] = string(refs[i]);
+            }
+            return column;
+        }
+
+        private String string(int ref) {
+            return ref == NULL ? null : strings[ref];
+        }
+
+        private static int total(int[] counts) {
+            int total = 0;
+            for (int count : counts) {
+                total += Math.max(count, 0);
+            }
+            return total;
+        }
+
+        private static <T> T ref(T[] rows, int ref) {
+            return ref == NULL ? null : rows[ref];
+        }
+
+        private static <T> T ref(List<T> rows, int ref) {
+            return ref == NULL ? null : rows.get(ref);
+        }
+    }
+}
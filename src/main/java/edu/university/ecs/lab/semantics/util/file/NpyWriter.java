@@ -0,0 +1,93 @@
+package edu.university.ecs.lab.semantics.util.file;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * writes one column as a NumPy .npy file (format version 1.0) of little-endian float32 or single byte values
+ *
+ * the row count is unknown while writing, so the header is reserved with a fixed size and patched on close.
+ * the result can be opened with numpy.load(file, mmap_mode="r")
+ */
+public class NpyWriter implements Closeable {
+
+    public static final String FLOAT32 = "<f4";
+    public static final String BYTE_STRING = "|S1";
+
+    private static final byte[] MAGIC = {(byte) 0x93, 'N', 'U', 'M', 'P', 'Y', 1, 0};
+    // magic, version, header length and header dictionary, a multiple of 64 as recommended by the format
+    private static final int HEADER_BYTES = 128;
+
+    private final FileChannel channel;
+    private final String descr;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+    private long rows = 0;
+
+    public NpyWriter(Path file, String descr) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        this.descr = descr;
+        channel.write(header(), 0);
+        channel.position(HEADER_BYTES);
+    }
+
+    public void add(float value) throws IOException {
+        if (buffer.remaining() < Float.BYTES) {
+            drain();
+        }
+        buffer.putFloat(value);
+        rows++;
+    }
+
+    public void add(byte value) throws IOException {
+        if (!buffer.hasRemaining()) {
+            drain();
+        }
+        buffer.put(value);
+        rows++;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            drain();
+            channel.write(header(), 0);
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private ByteBuffer header() {
+        StringBuilder dictionary = new StringBuilder()
+                .append("{'descr': '").append(descr)
+                .append("', 'fortran_order': False, 'shape': (").append(rows).append(",), }");
+        int padding = HEADER_BYTES - MAGIC.length - Short.BYTES - dictionary.length() - 1;
+        for (int i = 0; i < padding; i++) {
+            dictionary.append(' ');
+        }
+        dictionary.append('\n');
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        header.put(MAGIC)
+                .putShort((short) (HEADER_BYTES - MAGIC.length - Short.BYTES))
+                .put(dictionary.toString().getBytes(StandardCharsets.US_ASCII));
+        header.flip();
+        return header;
+    }
+}
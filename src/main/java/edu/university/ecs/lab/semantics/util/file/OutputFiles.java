@@ -0,0 +1,83 @@
+package edu.university.ecs.lab.semantics.util.file;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * opens the text outputs (JSON lists, CSV files, module pair clones), gzip compressed if turned on,
+ * and runs their writes on a shared I/O executor
+ */
+public class OutputFiles {
+
+    public static final String GZIP_SUFFIX = ".gz";
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private static volatile boolean gzip = false;
+
+    private static final ExecutorService IO_EXECUTOR = Executors.newFixedThreadPool(
+            Math.max(2, Runtime.getRuntime().availableProcessors()),
+            runnable -> {
+                Thread thread = new Thread(runnable, "output-writer");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    public static void setGzip(boolean gzip) {
+        OutputFiles.gzip = gzip;
+    }
+
+    public static boolean isGzip() {
+        return gzip;
+    }
+
+    public static ExecutorService executor() {
+        return IO_EXECUTOR;
+    }
+
+    /**
+     * @return the name the file is written under, fileName.gz if compression is turned on
+     */
+    public static String fileName(String fileName) {
+        return gzip ? fileName + GZIP_SUFFIX : fileName;
+    }
+
+    /**
+     * @param fileName the file name without the compression suffix, e.g. msClassList.txt
+     * @return a buffered UTF-8 writer for the file, writing fileName.gz if compression is turned on
+     */
+    public static Writer newWriter(String path, String fileName) throws IOException {
+        OutputStream out = Files.newOutputStream(Paths.get(path, fileName(fileName)));
+        out = gzip ? new GZIPOutputStream(out, BUFFER_SIZE) : new BufferedOutputStream(out, BUFFER_SIZE);
+        return new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+    }
+
+    /**
+     * @param fileName the file name without the compression suffix
+     * @return a buffered UTF-8 reader for the file, or for fileName.gz if only the compressed file exists
+     */
+    public static Reader newReader(String path, String fileName) throws IOException {
+        Path file = Paths.get(path, fileName);
+        Path compressed = Paths.get(path, fileName + GZIP_SUFFIX);
+        InputStream in = !Files.exists(file) && Files.exists(compressed)
+                ? new GZIPInputStream(Files.newInputStream(compressed), BUFFER_SIZE)
+                : Files.newInputStream(file);
+        return new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), BUFFER_SIZE);
+    }
+}
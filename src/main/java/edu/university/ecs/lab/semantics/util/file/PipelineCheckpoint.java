@@ -0,0 +1,112 @@
+package edu.university.ecs.lab.semantics.util.file;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * completed pipeline stages and clone shards of one run, kept in the checkpoint directory of the output path
+ *
+ * stages.txt holds the run key (system path and options) followed by one line per completed stage,
+ * a resumed run only trusts the checkpoints if the key is the same
+ */
+public class PipelineCheckpoint {
+
+    public static final String DIRECTORY = "checkpoint";
+
+    private static final String STAGES_FILE = "stages.txt";
+
+    public enum Stage {
+        PARSE, CLONES, CALCULATION, PERSIST
+    }
+
+    private final Path directory;
+    private final Set<Stage> completed = EnumSet.noneOf(Stage.class);
+
+    private PipelineCheckpoint(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * @param path the output directory
+     * @param runKey identifies the system and the options, checkpoints written for another key are discarded
+     * @param resume keep the checkpoints of the previous run, otherwise start from scratch
+     */
+    public static PipelineCheckpoint open(String path, String runKey, boolean resume) {
+        PipelineCheckpoint checkpoint = new PipelineCheckpoint(Paths.get(path, DIRECTORY));
+        if (!(resume && checkpoint.load(runKey))) {
+            checkpoint.reset(runKey);
+        }
+        return checkpoint;
+    }
+
+    public synchronized boolean isCompleted(Stage stage) {
+        return completed.contains(stage);
+    }
+
+    public synchronized void complete(Stage stage) {
+        if (!completed.add(stage)) {
+            return;
+        }
+        try {
+            Files.write(directory.resolve(STAGES_FILE), Collections.singletonList(stage.name()), StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            System.err.format("IOException: %s%n", e);
+        }
+    }
+
+    /**
+     * @return the shard file of the code clones between modules i and j
+     */
+    public Path shard(int i, int j) {
+        return directory.resolve("clones-" + i + "-" + j + ".bin");
+    }
+
+    private boolean load(String runKey) {
+        Path stages = directory.resolve(STAGES_FILE);
+        if (!Files.exists(stages)) {
+            return false;
+        }
+        try {
+            List<String> lines = Files.readAllLines(stages, StandardCharsets.UTF_8);
+            if (lines.isEmpty() || !lines.get(0).equals(runKey)) {
+                System.err.println("checkpoints were written with other options, starting from scratch");
+                return false;
+            }
+            for (String line : lines.subList(1, lines.size())) {
+                completed.add(Stage.valueOf(line.trim()));
+            }
+            return true;
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.format("IOException: %s%n", e);
+            completed.clear();
+            return false;
+        }
+    }
+
+    private void reset(String runKey) {
+        completed.clear();
+        try {
+            if (Files.exists(directory)) {
+                try (Stream<Path> files = Files.list(directory)) {
+                    for (Path file : (Iterable<Path>) files::iterator) {
+                        Files.delete(file);
+                    }
+                }
+            }
+            Files.createDirectories(directory);
+            Files.write(directory.resolve(STAGES_FILE), Collections.singletonList(runKey), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            System.err.format("IOException: %s%n", e);
+        }
+    }
+}
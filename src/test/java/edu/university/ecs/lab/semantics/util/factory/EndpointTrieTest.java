@@ -0,0 +1,111 @@
+package edu.university.ecs.lab.semantics.util.factory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import edu.university.ecs.lab.semantics.entity.MsFlowEntity;
+import edu.university.ecs.lab.semantics.entity.graph.MsClass;
+import edu.university.ecs.lab.semantics.entity.graph.MsId;
+import edu.university.ecs.lab.semantics.entity.graph.MsMethod;
+import edu.university.ecs.lab.semantics.entity.graph.MsRestCall;
+
+/**
+ * resolves rest calls against the endpoints of a few controllers
+ */
+public class EndpointTrieTest {
+
+    private static final int USER_BY_ID = 0;
+    private static final int ORDER_STATUS = 1;
+    private static final int PAYMENT_STATUS = 2;
+    private static final int USER_ROOT = 3;
+    private static final int ALL_USERS = 4;
+
+    private final EndpointTrie trie = new EndpointTrie(flows());
+
+    @Test
+    public void resolvesPathVariables() {
+        assertEquals(USER_BY_ID, trie.resolve(call("\"http://ts-user-service:12342/api/v1/users/\" + id", null, "getForObject")));
+    }
+
+    @Test
+    public void skipsFlowsWithoutMapping() {
+        assertEquals(5, trie.getEndpoints());
+    }
+
+    @Test
+    public void backtracksToTheWildcard() {
+        // the literal all is only mapped for POST, a GET falls back to {id}
+        assertEquals(USER_BY_ID, trie.resolve(call("\"http://ts-user-service:12342/api/v1/users/all\"", null, "getForObject")));
+        assertEquals(ALL_USERS, trie.resolve(call("\"http://ts-user-service:12342/api/v1/users/all\"", null, "postForObject")));
+    }
+
+    @Test
+    public void takesTheHttpMethodOfAnExchange() {
+        assertEquals(ALL_USERS, trie.resolve(call("\"http://ts-user-service:12342/api/v1/users/all\"", "POST", "exchange")));
+        assertEquals(USER_BY_ID, trie.resolve(call("\"http://ts-user-service:12342/api/v1/users/all\"", "GET", "exchange")));
+    }
+
+    @Test
+    public void picksTheServiceOfTheHost() {
+        assertEquals(PAYMENT_STATUS, trie.resolve(call("\"http://ts-payment-service:18673/api/v1/status\"", null, "getForObject")));
+        assertEquals(ORDER_STATUS, trie.resolve(call("\"http://ts-order-service:12031/api/v1/status\"", null, "getForObject")));
+    }
+
+    @Test
+    public void refusesAmbiguousEndpoints() {
+        // the same path in two services and a host that names neither
+        assertEquals(-1, trie.resolve(call("\"http://gateway:8080/api/v1/status\"", null, "getForObject")));
+        assertEquals(-1, trie.resolve(call("baseUrl + \"/api/v1/status\"", null, "getForObject")));
+    }
+
+    @Test
+    public void resolvesVariableUrlsOnlyByHost() {
+        assertEquals(-1, trie.resolve(call("url", null, "getForObject")));
+        assertEquals(USER_ROOT, trie.resolve(call("\"http://ts-user-service:12342/\" + id", null, "getForObject")));
+        assertEquals(-1, trie.resolve(call("\"http://ts-order-service:12031/\" + id", null, "getForObject")));
+    }
+
+    @Test
+    public void setsTheTargetFlows() {
+        List<MsRestCall> restCalls = Arrays.asList(
+                call("\"http://ts-user-service:12342/api/v1/users/\" + id", null, "getForObject"),
+                call("url", null, "getForObject"));
+        assertEquals(1, trie.resolve(restCalls));
+        assertEquals(USER_BY_ID, restCalls.get(0).getTargetFlowId());
+        assertEquals(-1, restCalls.get(1).getTargetFlowId());
+    }
+
+    private static List<MsFlowEntity> flows() {
+        List<MsFlowEntity> flows = new ArrayList<>();
+        flows.add(flow(flows, "ts-user-service", "/api/v1/users/{id}", "GET"));
+        flows.add(flow(flows, "ts-order-service", "/api/v1/status", "GET"));
+        flows.add(flow(flows, "ts-payment-service", "/api/v1/status", "GET"));
+        flows.add(flow(flows, "ts-user-service", "/{id}", "GET"));
+        flows.add(flow(flows, "ts-user-service", "/api/v1/users/all", "POST"));
+        // a service method without a mapping is not an endpoint
+        flows.add(flow(flows, "ts-user-service", null, null));
+        return flows;
+    }
+
+    private static MsFlowEntity flow(List<MsFlowEntity> flows, String module, String mappingPath, String mapping) {
+        MsClass controller = new MsClass();
+        controller.setMsId(new MsId("/repo/" + module + "/src/main/java/controller/Controller.java"));
+        MsMethod method = new MsMethod();
+        method.setMappingPath(mappingPath);
+        method.setMapping(mapping);
+        MsFlowEntity flow = new MsFlowEntity(controller, method);
+        flow.setId(flows.size());
+        return flow;
+    }
+
+    private static MsRestCall call(String api, String httpMethod, String restTemplateMethod) {
+        MsRestCall restCall = new MsRestCall(api, httpMethod, null);
+        restCall.setCalledMethodName(restTemplateMethod);
+        return restCall;
+    }
+}
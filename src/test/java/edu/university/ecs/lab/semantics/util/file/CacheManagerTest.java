@@ -0,0 +1,200 @@
+package edu.university.ecs.lab.semantics.util.file;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import edu.university.ecs.lab.semantics.entity.MsCodeClone;
+import edu.university.ecs.lab.semantics.entity.MsFlowEntity;
+import edu.university.ecs.lab.semantics.entity.graph.MsArgument;
+import edu.university.ecs.lab.semantics.entity.graph.MsClass;
+import edu.university.ecs.lab.semantics.entity.graph.MsClassRoles;
+import edu.university.ecs.lab.semantics.entity.graph.MsField;
+import edu.university.ecs.lab.semantics.entity.graph.MsId;
+import edu.university.ecs.lab.semantics.entity.graph.MsMethod;
+import edu.university.ecs.lab.semantics.entity.graph.MsMethodCall;
+import edu.university.ecs.lab.semantics.entity.graph.MsRestCall;
+import edu.university.ecs.lab.semantics.util.MsCache;
+import edu.university.ecs.lab.semantics.util.factory.MsCacheCodeCloneSink;
+
+/**
+ * persists a small model with persistCache and reads it back with recreateCache
+ */
+public class CacheManagerTest {
+
+    @TempDir
+    Path cacheDirectory;
+
+    @AfterEach
+    public void resetGzip() {
+        OutputFiles.setGzip(false);
+    }
+
+    @Test
+    public void recreatesPlainCache() {
+        roundTrip(false);
+    }
+
+    @Test
+    public void recreatesGzipCache() {
+        roundTrip(true);
+    }
+
+    private void roundTrip(boolean gzip) {
+        buildModel();
+        List<String> modules = MsCache.modules;
+        List<MsClass> classes = MsCache.msClassList;
+        List<MsMethod> methods = MsCache.msMethodList;
+        List<MsMethodCall> methodCalls = MsCache.msMethodCallList;
+        List<MsRestCall> restCalls = MsCache.msRestCallList;
+        List<MsField> fields = MsCache.msFieldList;
+        List<MsFlowEntity> flows = MsCache.msFlows;
+        List<MsCodeClone> clones = new ArrayList<>(MsCache.msCodeClones);
+        List<MsCodeClone> typeA = new ArrayList<>(MsCache.typeA);
+
+        OutputFiles.setGzip(gzip);
+        new CacheManager().persistCache(cacheDirectory.toString());
+        String suffix = gzip ? ".txt" + OutputFiles.GZIP_SUFFIX : ".txt";
+        assertTrue(Files.exists(cacheDirectory.resolve("msFlowList" + suffix)));
+        assertTrue(Files.exists(cacheDirectory.resolve("msCodeClones" + suffix)));
+
+        MsCache.init();
+        MsCache.msFlows = null;
+        new CacheManager().recreateCache(cacheDirectory.toString());
+
+        assertEquals(modules, MsCache.modules);
+        assertEquals(classes, MsCache.msClassList);
+        assertEquals(methods, MsCache.msMethodList);
+        assertEquals(methodCalls, MsCache.msMethodCallList);
+        assertEquals(restCalls, MsCache.msRestCallList);
+        assertEquals(fields, MsCache.msFieldList);
+        assertEquals(flows, MsCache.msFlows);
+        assertEquals(clones, new ArrayList<>(MsCache.msCodeClones));
+        assertEquals(typeA, new ArrayList<>(MsCache.typeA));
+
+        // the flows share the objects of the cache lists, and the parts they have in common, again
+        MsFlowEntity first = MsCache.msFlows.get(0);
+        MsFlowEntity second = MsCache.msFlows.get(1);
+        assertSame(first.getMsService(), second.getMsService());
+        assertSame(first.getMsServiceMethod(), second.getMsServiceMethod());
+        assertSame(MsCache.msClassList.get(1), first.getMsService());
+        assertSame(MsCache.msMethodList.get(0), first.getMsControllerMethod());
+        assertSame(MsCache.msMethodCallList.get(0), first.getMsServiceMethodCall());
+        assertSame(MsCache.msFieldList.get(0), first.getMsControllerServiceField());
+        assertSame(MsCache.msRestCallList.get(0), first.getMsRestCalls().get(0));
+        assertSame(first.getMsRestCalls().get(0), second.getMsRestCalls().get(0));
+
+        for (MsCodeClone clone : MsCache.msCodeClones) {
+            assertSame(MsCache.msFlows.get(clone.getAId()), clone.getA());
+            assertSame(MsCache.msFlows.get(clone.getBId()), clone.getB());
+        }
+    }
+
+    private static void buildModel() {
+        MsCache.init();
+        MsCache.msFlows = new ArrayList<>();
+        MsCache.modules.addAll(Arrays.asList("ts-order-service", "ts-user-service"));
+
+        MsClass orderController = msClass("ts-order-service", "order.controller", "OrderController", MsClassRoles.CONTROLLER);
+        MsClass orderService = msClass("ts-order-service", "order.service", "OrderServiceImpl", MsClassRoles.SERVICE);
+        MsClass userController = msClass("ts-user-service", "user.controller", "UserController", MsClassRoles.CONTROLLER);
+
+        MsMethod getOrder = msMethod(orderController, "getOrder", "Order", "/api/v1/orders/{}", "GET");
+        MsMethod getOrderStatus = msMethod(orderController, "getOrderStatus", "String", "/api/v1/orders/{}/status", "GET");
+        MsMethod findOrder = msMethod(orderService, "findOrder", "Order", null, null);
+        MsMethod getUser = msMethod(userController, "getUser", "User", "/api/v1/users/{}", "GET");
+
+        MsMethodCall findOrderCall = new MsMethodCall();
+        findOrderCall.setParentPackageName("order.controller");
+        findOrderCall.setParentClassName("OrderController");
+        findOrderCall.setParentMethodName("getOrder");
+        findOrderCall.setParentClassId();
+        findOrderCall.setCalledMethodName("findOrder");
+        findOrderCall.setLineNumber(21);
+        MsCache.addMsMethodCall(findOrderCall);
+
+        MsRestCall userCall = new MsRestCall("\"http://ts-user-service:12342/api/v1/users/\" + id", "GET", "User");
+        userCall.setParentPackageName("order.service");
+        userCall.setParentClassName("OrderServiceImpl");
+        userCall.setParentMethodName("findOrder");
+        userCall.setParentClassId();
+        userCall.setLineNumber(42);
+        userCall.setTargetFlowId(2);
+        MsCache.addMsRestMethodCall(userCall);
+
+        MsField serviceField = new MsField();
+        serviceField.setFieldClass("OrderService");
+        serviceField.setFieldVariable("orderService");
+        serviceField.setLine(12);
+        MsCache.addMsField(serviceField);
+
+        // two endpoints of the order controller going through the same service method and rest call
+        for (MsMethod endpoint : new MsMethod[] {getOrder, getOrderStatus}) {
+            MsFlowEntity flow = new MsFlowEntity(orderController, endpoint);
+            flow.setMsService(orderService);
+            flow.setMsServiceMethod(findOrder);
+            flow.setMsServiceMethodCall(findOrderCall);
+            flow.setMsControllerServiceField(serviceField);
+            flow.setMsRestCalls(new ArrayList<>(Arrays.asList(userCall)));
+            MsCache.addMsFlow(flow);
+        }
+        MsFlowEntity userFlow = new MsFlowEntity(userController, getUser);
+        userFlow.setMsRestCalls(new ArrayList<>());
+        MsCache.addMsFlow(userFlow);
+
+        MsCacheCodeCloneSink sink = new MsCacheCodeCloneSink();
+        sink.accept(clone(MsCache.msFlows.get(0), MsCache.msFlows.get(2), 0.95, true, false, false));
+        sink.accept(clone(MsCache.msFlows.get(1), MsCache.msFlows.get(2), 0.25, false, false, true));
+    }
+
+    private static MsClass msClass(String module, String packageName, String className, MsClassRoles role) {
+        MsClass msClass = new MsClass();
+        msClass.setMsId(new MsId("/repo/" + module + "/src/main/java/" + packageName.replace('.', '/') + "/" + className + ".java"));
+        msClass.setPackageName(packageName);
+        msClass.setClassName(className);
+        msClass.setRole(role);
+        msClass.setIds();
+        MsCache.addMsClass(msClass);
+        return msClass;
+    }
+
+    private static MsMethod msMethod(MsClass msClass, String methodName, String returnType, String mappingPath, String mapping) {
+        MsMethod msMethod = new MsMethod();
+        msMethod.setMsId(msClass.getMsId());
+        msMethod.setPackageName(msClass.getPackageName());
+        msMethod.setClassName(msClass.getClassName());
+        msMethod.setMethodName(methodName);
+        msMethod.setReturnType(returnType);
+        msMethod.setMappingPath(mappingPath);
+        msMethod.setMapping(mapping);
+        msMethod.addArgument(new MsArgument("String"));
+        msMethod.setIds();
+        MsCache.addMsMethod(msMethod);
+        return msMethod;
+    }
+
+    private static MsCodeClone clone(MsFlowEntity a, MsFlowEntity b, double globalSimilarity, boolean typeA, boolean typeB,
+                                     boolean typeC) {
+        MsCodeClone clone = new MsCodeClone();
+        clone.setA(a);
+        clone.setB(b);
+        clone.setGlobalSimilarity(globalSimilarity);
+        clone.setSimilarityController(1.0);
+        clone.setCtrMethodNameSimilarity(0.5);
+        clone.setCalURLSimilarity(Double.NaN);
+        clone.setTypeA(typeA);
+        clone.setTypeB(typeB);
+        clone.setTypeC(typeC);
+        return clone;
+    }
+}
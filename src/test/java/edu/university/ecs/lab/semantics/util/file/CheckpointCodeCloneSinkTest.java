@@ -0,0 +1,230 @@
+package edu.university.ecs.lab.semantics.util.file;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import edu.university.ecs.lab.semantics.SemanticAnalysisCommand;
+import edu.university.ecs.lab.semantics.entity.MsCodeClone;
+import edu.university.ecs.lab.semantics.entity.MsFlowEntity;
+import edu.university.ecs.lab.semantics.entity.graph.MsAnnotation;
+import edu.university.ecs.lab.semantics.entity.graph.MsArgument;
+import edu.university.ecs.lab.semantics.entity.graph.MsClass;
+import edu.university.ecs.lab.semantics.entity.graph.MsClassRoles;
+import edu.university.ecs.lab.semantics.entity.graph.MsId;
+import edu.university.ecs.lab.semantics.entity.graph.MsMethod;
+import edu.university.ecs.lab.semantics.entity.quantification.ModuleClone;
+import edu.university.ecs.lab.semantics.util.MsCache;
+import edu.university.ecs.lab.semantics.util.entitysimilarity.strategies.EntityLiteralSimilarityCheckStrategy;
+import edu.university.ecs.lab.semantics.util.factory.CodeCloneSink;
+import edu.university.ecs.lab.semantics.util.factory.CodeClonesFactory;
+import edu.university.ecs.lab.semantics.util.factory.CompositeCodeCloneSink;
+import edu.university.ecs.lab.semantics.util.factory.CsvCodeCloneSink;
+import edu.university.ecs.lab.semantics.util.factory.ModuleCloneFactory;
+import edu.university.ecs.lab.semantics.util.factory.MsCacheCodeCloneSink;
+import edu.university.ecs.lab.semantics.util.file.PipelineCheckpoint.Stage;
+
+/**
+ * interrupts clone detection after some module pairs, resumes it from the shards and compares the outputs with
+ * those of an uninterrupted run
+ */
+public class CheckpointCodeCloneSinkTest {
+
+    private static final String RUN_KEY = "/repo options";
+    private static final List<String> MODULES = Arrays.asList("ts-order-service", "ts-user-service", "ts-payment-service");
+    private static final String[] OUTPUTS = {"per-cfg-clones.csv", "per-cfg-non-clones.csv", "per-module-clones.csv"};
+
+    @TempDir
+    Path outputDirectory;
+
+    @Test
+    public void resumedRunWritesTheSameOutputs() throws IOException {
+        Path uninterrupted = Files.createDirectories(outputDirectory.resolve("uninterrupted"));
+        Path resumed = Files.createDirectories(outputDirectory.resolve("resumed"));
+
+        findCodeClones(uninterrupted, false, -1);
+        List<ModuleClone> moduleClones = MsCache.getModuleCloneCounter().getModuleClones();
+        double[] percentages = MsCache.getModuleCloneCounter().getClonePercentages();
+        int clones = MsCache.msCodeClones.size();
+        assertEquals(3, MsCache.typeB.size());
+
+        // the inter-module pairs are 0-1, 0-2 and 1-2, the run stops before the last one
+        assertThrows(IllegalStateException.class, () -> findCodeClones(resumed, false, 2));
+        PipelineCheckpoint checkpoint = PipelineCheckpoint.open(resumed.toString(), RUN_KEY, true);
+        assertTrue(Files.exists(checkpoint.shard(0, 1)));
+        assertTrue(Files.exists(checkpoint.shard(0, 2)));
+        assertFalse(Files.exists(checkpoint.shard(1, 2)));
+
+        int scoredPairs = findCodeClones(resumed, true, -1);
+        assertEquals(1, scoredPairs);
+        assertEquals(clones, MsCache.msCodeClones.size());
+        assertEquals(moduleClones, MsCache.getModuleCloneCounter().getModuleClones());
+        assertTrue(Arrays.equals(percentages, MsCache.getModuleCloneCounter().getClonePercentages()));
+        for (String output : OUTPUTS) {
+            assertArrayEquals(Files.readAllBytes(uninterrupted.resolve(output)), Files.readAllBytes(resumed.resolve(output)));
+        }
+    }
+
+    @Test
+    public void resumeKeepsTheCompletedStagesOfTheSameRun() {
+        PipelineCheckpoint checkpoint = PipelineCheckpoint.open(outputDirectory.toString(), RUN_KEY, false);
+        checkpoint.complete(Stage.PARSE);
+        checkpoint.complete(Stage.CLONES);
+
+        PipelineCheckpoint resumed = PipelineCheckpoint.open(outputDirectory.toString(), RUN_KEY, true);
+        assertTrue(resumed.isCompleted(Stage.PARSE));
+        assertTrue(resumed.isCompleted(Stage.CLONES));
+        assertFalse(resumed.isCompleted(Stage.CALCULATION));
+
+        // checkpoints of other options are discarded, and so are gone for the first key as well
+        assertFalse(PipelineCheckpoint.open(outputDirectory.toString(), "/repo other options", true).isCompleted(Stage.PARSE));
+        assertFalse(PipelineCheckpoint.open(outputDirectory.toString(), RUN_KEY, true).isCompleted(Stage.PARSE));
+    }
+
+    /**
+     * runs clone detection and the per-module figures into the output directory like SemanticAnalysisCommand
+     * @param interruptAt the module pair, in the order they are compared, at which the run throws, -1 for none
+     * @return the number of module pairs that were scored and not replayed
+     */
+    private static int findCodeClones(Path output, boolean resume, int interruptAt) {
+        buildModel();
+        SemanticAnalysisCommand.cachePath = output.toString();
+        PipelineCheckpoint checkpoint = PipelineCheckpoint.open(output.toString(), RUN_KEY, resume);
+        CodeCloneSink sinks = new CompositeCodeCloneSink(new MsCacheCodeCloneSink(), new CsvCodeCloneSink(output.toString()));
+        ScoredPairs pairs = new ScoredPairs(new CheckpointCodeCloneSink(checkpoint,
+                new CompositeCodeCloneSink(new Interrupt(interruptAt), sinks)));
+        try {
+            new CodeClonesFactory(new EntityLiteralSimilarityCheckStrategy(), pairs, CodeClonesFactory.Scope.INTER, false)
+                    .findCodeClones();
+        } finally {
+            // an interrupted run leaves no writer open on the files the resumed run writes again
+            sinks.close();
+        }
+        checkpoint.complete(Stage.CLONES);
+        new ModuleCloneFactory().createData();
+        return pairs.scored;
+    }
+
+    private static void buildModel() {
+        MsCache.init();
+        MsCache.msFlows = new ArrayList<>();
+        MsCache.modules.addAll(MODULES);
+        for (String module : MODULES) {
+            String entity = Character.toUpperCase(module.charAt(3)) + module.substring(4, module.indexOf("-service"));
+            MsClass controller = msClass(module, entity + "Controller");
+            // every module has a status endpoint, a type B clone of the others, and one of its own
+            for (MsMethod endpoint : new MsMethod[] {
+                    msMethod(controller, "getStatus", "String"),
+                    msMethod(controller, "get" + entity, entity)}) {
+                MsFlowEntity flow = new MsFlowEntity(controller, endpoint);
+                flow.setMsRestCalls(new ArrayList<>());
+                MsCache.addMsFlow(flow);
+            }
+        }
+    }
+
+    private static MsClass msClass(String module, String className) {
+        MsClass msClass = new MsClass();
+        msClass.setMsId(new MsId("/repo/" + module + "/src/main/java/controller/" + className + ".java"));
+        msClass.setPackageName("controller");
+        msClass.setClassName(className);
+        msClass.setRole(MsClassRoles.CONTROLLER);
+        msClass.setIds();
+        MsCache.addMsClass(msClass);
+        return msClass;
+    }
+
+    private static MsMethod msMethod(MsClass msClass, String methodName, String returnType) {
+        MsMethod msMethod = new MsMethod();
+        msMethod.setMsId(msClass.getMsId());
+        msMethod.setPackageName(msClass.getPackageName());
+        msMethod.setClassName(msClass.getClassName());
+        msMethod.setMethodName(methodName);
+        msMethod.setReturnType(returnType);
+        msMethod.addArgument(new MsArgument("String"));
+        List<MsAnnotation> annotations = new ArrayList<>();
+        for (String annotationName : new String[] {"GetMapping", "ResponseBody"}) {
+            MsAnnotation msAnnotation = new MsAnnotation();
+            msAnnotation.setAnnotationName(annotationName);
+            annotations.add(msAnnotation);
+        }
+        msMethod.setMsAnnotations(annotations);
+        msMethod.setIds();
+        MsCache.addMsMethod(msMethod);
+        return msMethod;
+    }
+
+    /**
+     * counts the module pairs the factory scores, the pairs replayed from shards are not handed to it
+     */
+    private static final class ScoredPairs implements CodeCloneSink {
+
+        private final CodeCloneSink downstream;
+        private int scored;
+
+        private ScoredPairs(CodeCloneSink downstream) {
+            this.downstream = downstream;
+        }
+
+        @Override
+        public boolean beginModulePair(int i, int j) {
+            boolean score = downstream.beginModulePair(i, j);
+            if (score) {
+                scored++;
+            }
+            return score;
+        }
+
+        @Override
+        public void accept(MsCodeClone msCodeClone) {
+            downstream.accept(msCodeClone);
+        }
+
+        @Override
+        public void endModulePair(int i, int j) {
+            downstream.endModulePair(i, j);
+        }
+
+        @Override
+        public void close() {
+            downstream.close();
+        }
+    }
+
+    /**
+     * throws when the module pair at interruptAt begins, like a run that is killed there
+     */
+    private static final class Interrupt implements CodeCloneSink {
+
+        private final int interruptAt;
+        private int begun;
+
+        private Interrupt(int interruptAt) {
+            this.interruptAt = interruptAt;
+        }
+
+        @Override
+        public boolean beginModulePair(int i, int j) {
+            if (begun++ == interruptAt) {
+                throw new IllegalStateException("interrupted at module pair " + i + " - " + j);
+            }
+            return true;
+        }
+
+        @Override
+        public void accept(MsCodeClone msCodeClone) {
+        }
+    }
+}